@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.cli;
+
+import io.yupiik.fusion.framework.build.api.cli.Command;
+import io.yupiik.hcms.http.DocEndpoint;
+import io.yupiik.hcms.service.model.ModelHandler;
+import io.yupiik.hcms.service.model.ModelLoader;
+import io.yupiik.hcms.service.security.JwtService;
+import io.yupiik.hcms.service.security.PasswordEncoder;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Training run for AppCDS: it loads and uses the classes a server start needs so running it with
+ * {@code -XX:ArchiveClassesAtExit=hcms.jsa} dumps an archive the next starts can map instead of loading and verifying
+ * these classes again. The {@code cds} maven profile runs it when building the image (see {@code src/main/docker/cds}).
+ */
+@Command(
+        name = "cds-training",
+        description =
+                "Load the model, compile its methods, render its documentation and forge a JWT then exit, used to dump an AppCDS archive.")
+public class CdsTraining implements Runnable {
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private final ModelLoader.DynamicModel model;
+    private final ModelHandler modelHandler;
+    private final DocEndpoint docEndpoint;
+    private final JwtService jwtService;
+    private final PasswordEncoder passwordEncoder;
+
+    public CdsTraining(
+            final ModelLoader.DynamicModel model,
+            final ModelHandler modelHandler,
+            final DocEndpoint docEndpoint,
+            final JwtService jwtService,
+            final PasswordEncoder passwordEncoder) {
+        this.model = model;
+        this.modelHandler = modelHandler;
+        this.docEndpoint = docEndpoint;
+        this.jwtService = jwtService;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @Override
+    public void run() {
+        final var current = model.get();
+        // training must not migrate the database
+        final long methods = modelHandler.toJsonRpc(current, false).count();
+        docEndpoint.plan(current);
+
+        final var token = jwtService.forgeAccessToken(Map.of("sub", "cds-training", "roles", List.of()));
+        jwtService.verify(token);
+        passwordEncoder.matches("cds-training", passwordEncoder.toDatabase("cds-training"));
+
+        logger.info(() -> "Training done (" + methods + " methods)");
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.cli;
+
+import io.yupiik.fusion.framework.build.api.cli.Command;
+import io.yupiik.fusion.framework.build.api.configuration.Property;
+import io.yupiik.fusion.framework.build.api.configuration.RootConfiguration;
+import io.yupiik.fusion.json.JsonMapper;
+import io.yupiik.hcms.http.DocEndpoint;
+import io.yupiik.hcms.service.model.ModelLoader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+@Command(
+        name = "precompile-model",
+        description =
+                "Precompile the model in a plan file (OpenRPC/OpenAPI documents) to use with `hcms.model-plan` to start faster.")
+public class PrecompileModel implements Runnable {
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private final PrecompileConfiguration configuration;
+    private final ModelLoader.DynamicModel model;
+    private final DocEndpoint docEndpoint;
+    private final JsonMapper jsonMapper;
+
+    public PrecompileModel(
+            final PrecompileConfiguration configuration,
+            final ModelLoader.DynamicModel model,
+            final DocEndpoint docEndpoint,
+            final JsonMapper jsonMapper) {
+        this.configuration = configuration;
+        this.model = model;
+        this.docEndpoint = docEndpoint;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @Override
+    public void run() {
+        final var output = Path.of(configuration.output());
+        try {
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Files.writeString(output, jsonMapper.toString(docEndpoint.plan(model.get())));
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        logger.info(() -> "Created '" + output + "'");
+    }
+
+    @RootConfiguration("precompile-model")
+    public record PrecompileConfiguration(
+            @Property(
+                            documentation = "Where to write the model plan (`precompile-model` command only).",
+                            defaultValue = "\"hcms-plan.json\"")
+                    String output) {}
+}
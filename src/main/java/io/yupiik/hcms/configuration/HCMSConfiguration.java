@@ -34,9 +34,21 @@ public record HCMSConfiguration(
         @Property(documentation = "Path of the model to deploy.", defaultValue = "\"conf/model.json\"")
                 String modelLocation,
         @Property(
-                        documentation = "Should dev mode be enabled, ie reload the model on read if it changed.",
+                        documentation =
+                                "Should dev mode be enabled, ie watch the model (and its SQL scripts) and reload it when it changes.",
                         defaultValue = "true")
                 boolean devMode,
+        @Property(
+                        value = "dev-mode-debounce",
+                        documentation =
+                                "In dev mode, how long (in ms) to wait without any new file change before reloading the model.",
+                        defaultValue = "250L")
+                long devModeDebounce,
+        @Property(
+                        value = "model-plan",
+                        documentation =
+                                "Path of a model plan generated with `precompile-model` command. When its model and HCMS version match the deployed ones, the precomputed OpenRPC/OpenAPI documents are used instead of being computed at startup.")
+                String modelPlan,
         @Property(
                         documentation =
                                 "Max bulk size, i.e. how many requests can be sent at once to be executed in the same transaction.",
@@ -85,7 +97,11 @@ public record HCMSConfiguration(
                             documentation =
                                     "RSA PEM (private key) - ensure to set the certificate in `keys` with the right `kid`.")
                     String privateKey,
-            @Property(documentation = "JWT algorithm.", defaultValue = "\"RS256\"") String algorithm,
+            @Property(
+                            documentation =
+                                    "JWT algorithm, `RS256`, `RS384`, `RS512`, `ES256`, `ES384` or `ES512`. ECDSA (`ES256`) keys are way smaller and faster to sign than RSA ones with a comparable security level so it is the recommended option when clients support it.",
+                            defaultValue = "\"RS256\"")
+                    String algorithm,
             @Property(documentation = "JWT issuer.", defaultValue = "\"https://hcms.yupiik.io/token/\"") String issuer,
             @Property(
                             documentation =
@@ -103,7 +119,80 @@ public record HCMSConfiguration(
             @Property(
                             documentation = "List of known keys (JWKS) for validations.",
                             defaultValue = "java.util.List.of()")
-                    List<JwtValidatorConfiguration.JwkKey> keys) {}
+                    List<JwtValidatorConfiguration.JwkKey> keys,
+            @Property(
+                            value = "jwt-cache-size",
+                            documentation =
+                                    "Max number of verified tokens kept in memory (until their expiration) to avoid to re-verify their signature on each request. `0` disables the cache.",
+                            defaultValue = "10_000")
+                    int jwtCacheSize,
+            @Property(
+                            value = "generated-rsa-key-size",
+                            documentation =
+                                    "When no private key is configured and algorithm is a RSA one, the generated key size. 2048 is generally sufficient and makes signing significantly cheaper than 4096.",
+                            defaultValue = "4_096")
+                    int generatedRsaKeySize,
+            @Property(
+                            value = "user-cache-size",
+                            documentation = "Max number of users (with their roles) cached for login/refresh.",
+                            defaultValue = "1_000")
+                    int userCacheSize,
+            @Property(
+                            value = "user-cache-ttl",
+                            documentation =
+                                    "How long (in seconds) a user (with its roles) is cached for login/refresh. `0` disables the cache.",
+                            defaultValue = "60L")
+                    long userCacheTtl,
+            @Property(
+                            value = "user-negative-cache-ttl",
+                            documentation = "How long (in seconds) an unknown login is cached. `0` disables it.",
+                            defaultValue = "5L")
+                    long userNegativeCacheTtl,
+            @Property(
+                            value = "revocation-refresh-interval",
+                            documentation =
+                                    "How often (in seconds) revoked tokens are reloaded from the database (`HCMS_REVOKED_TOKEN` table). It is the max delay for a revocation done on another instance to be visible. `0` disables the polling.",
+                            defaultValue = "30L")
+                    long revocationRefreshInterval,
+            @Property(
+                            value = "revocation-admin-role",
+                            documentation = "Role required to call `hcms.security.revoke`.",
+                            defaultValue = "\"hcms:admin\"")
+                    String revocationAdminRole,
+            @Property(value = "login-throttling", documentation = "Login brute force protection.")
+                    LoginThrottlingConfiguration loginThrottling) {}
+
+    public record LoginThrottlingConfiguration(
+            @Property(documentation = "Should login attempts be limited.", defaultValue = "true") boolean enabled,
+            @Property(documentation = "Sliding window duration (in seconds).", defaultValue = "60L") long window,
+            @Property(
+                            value = "max-attempts-per-login",
+                            documentation = "Max login attempts for a login in the window, `0` to disable login checks.",
+                            defaultValue = "10")
+                    int maxAttemptsPerLogin,
+            @Property(
+                            value = "max-attempts-per-ip",
+                            documentation =
+                                    "Max login attempts (successful ones included) for a client IP in the window, `0` to disable IP checks. Behind a proxy or load balancer, set `trusted-proxies` when enabling it else all clients share the proxy address and the limit applies to the whole deployment.",
+                            defaultValue = "0")
+                    int maxAttemptsPerIp,
+            @Property(
+                            value = "ip-header",
+                            documentation =
+                                    "Header to read the client IP from when `trusted-proxies` is positive. The value appended by the outermost trusted proxy is used (`trusted-proxies` from the right) since previous ones are set by the client. If the header is missing the connection remote address is used.",
+                            defaultValue = "\"x-forwarded-for\"")
+                    String ipHeader,
+            @Property(
+                            value = "trusted-proxies",
+                            documentation =
+                                    "Number of proxies in front of HCMS appending the client IP to `ip-header`, `0` means HCMS is directly exposed and the connection remote address is used.",
+                            defaultValue = "0")
+                    int trustedProxies,
+            @Property(
+                            documentation =
+                                    "Number of counter slots (keys are hashed on them), bigger means less collisions but more memory.",
+                            defaultValue = "4_096")
+                    int slots) {}
 
     public record DatabaseInitialization(
             @Property(documentation = "Should database be initialized at startup.", defaultValue = "true")
@@ -112,6 +201,23 @@ public record HCMSConfiguration(
                             documentation = "When `enabled` is `true`, should errors be ignored if any.",
                             defaultValue = "false")
                     boolean ignoreErrors,
+            @Property(
+                            documentation =
+                                    "If the schema history (`HCMS_SCHEMA_HISTORY`) is empty, record the model scripts as applied without executing them. Enable it once when upgrading a database provisioned before the history existed, else all scripts are replayed (and `CREATE TABLE` ones fail without `ignoreErrors`).",
+                            defaultValue = "false")
+                    boolean baseline,
+            @Property(
+                            value = "lock-timeout",
+                            documentation =
+                                    "How long (in seconds) an instance waits for another one to migrate the database before failing. It should be longer than the longest migration.",
+                            defaultValue = "1_800L")
+                    long lockTimeout,
+            @Property(
+                            value = "stale-lock",
+                            documentation =
+                                    "The migrating instance refreshes the `HCMS_SCHEMA_LOCK` row every quarter of this duration (in seconds), if it is not refreshed during this duration, the instance is considered crashed and its lock is removed.",
+                            defaultValue = "120L")
+                    long staleLock,
             @Property(
                             documentation = "Classpath scripts to use to seed the database if create is `true`.",
                             defaultValue = "java.util.List.of(\"ddl/01-create-database.h2.sql\")")
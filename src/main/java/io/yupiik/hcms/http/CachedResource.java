@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.http;
+
+import io.yupiik.fusion.http.server.api.Request;
+import io.yupiik.fusion.http.server.api.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In memory HTTP resource with its precomputed gzip variant and strong ETags,
+ * it handles {@code accept-encoding} negotiation and {@code If-None-Match} (304).
+ */
+final class CachedResource {
+    private static final int MIN_GZIP_SIZE = 1_024;
+
+    private final String contentType;
+    private final String cacheControl;
+    private final byte[] content;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+
+    private CachedResource(
+            final String contentType, final String cacheControl, final byte[] content, final byte[] gzip) {
+        this.contentType = contentType;
+        this.cacheControl = cacheControl;
+        this.content = content;
+        this.gzip = gzip;
+        final var hash = hash(content);
+        this.etag = "\"" + hash + "\"";
+        this.gzipEtag = gzip == null ? null : "\"" + hash + "-gzip\""; // strong etag is per representation
+    }
+
+    private CachedResource(
+            final String contentType,
+            final String cacheControl,
+            final byte[] content,
+            final byte[] gzip,
+            final String etag,
+            final String gzipEtag) {
+        this.contentType = contentType;
+        this.cacheControl = cacheControl;
+        this.content = content;
+        this.gzip = gzip;
+        this.etag = etag;
+        this.gzipEtag = gzipEtag;
+    }
+
+    /**
+     * @param contentType  content type of the resource.
+     * @param cacheControl cache control header value.
+     * @param content      raw bytes.
+     * @param gzip         gzip variant if available, if {@code null} and the content is compressible it is computed.
+     * @return the cached resource.
+     */
+    static CachedResource of(
+            final String contentType, final String cacheControl, final byte[] content, final byte[] gzip) {
+        return new CachedResource(
+                contentType,
+                cacheControl,
+                content,
+                gzip != null ? gzip : (isCompressible(contentType, content) ? gzip(content) : null));
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    /**
+     * @return the content hash, usable to version an URL.
+     */
+    String version() {
+        return etag.substring(1, etag.length() - 1);
+    }
+
+    CachedResource withCacheControl(final String value) {
+        return new CachedResource(contentType, value, content, gzip, etag, gzipEtag);
+    }
+
+    Response toResponse(final Request request) {
+        final var encoding = request.header("accept-encoding");
+        final boolean useGzip = gzip != null && encoding != null && encoding.contains("gzip");
+        final var currentEtag = useGzip ? gzipEtag : etag;
+
+        final var builder = Response.of()
+                .header("ETag", currentEtag)
+                .header("Cache-Control", cacheControl)
+                .header("Vary", "accept-encoding");
+        if (matches(request.header("if-none-match"), currentEtag)) {
+            return builder.status(304).build();
+        }
+        if (useGzip) {
+            builder.header("content-encoding", "gzip");
+        }
+        return builder.status(200)
+                .header("content-type", contentType)
+                .body(HttpRequest.BodyPublishers.ofByteArray(useGzip ? gzip : content))
+                .build();
+    }
+
+    static boolean matches(final String ifNoneMatch, final String currentEtag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::strip)
+                .map(it -> it.startsWith("W/") ? it.substring("W/".length()) : it)
+                .anyMatch(it -> "*".equals(it) || currentEtag.equals(it));
+    }
+
+    private static boolean isCompressible(final String contentType, final byte[] content) {
+        return content.length >= MIN_GZIP_SIZE && !contentType.startsWith("image/");
+    }
+
+    private static byte[] gzip(final byte[] content) {
+        final var out = new ByteArrayOutputStream(content.length / 4);
+        try (final var gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final var compressed = out.toByteArray();
+        return compressed.length < content.length ? compressed : null;
+    }
+
+    static String hash(final byte[] content) {
+        try {
+            return Base64.getUrlEncoder()
+                    .withoutPadding()
+                    .encodeToString(Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(content), 16));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -23,23 +23,26 @@ import static java.util.Comparator.comparing;
 import static java.util.Map.entry;
 import static java.util.Optional.ofNullable;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
 
 import io.yupiik.fusion.documentation.OpenRPC2OpenAPI;
 import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
 import io.yupiik.fusion.framework.build.api.http.HttpMatcher;
-import io.yupiik.fusion.http.server.api.IOConsumer;
 import io.yupiik.fusion.http.server.api.Request;
 import io.yupiik.fusion.http.server.api.Response;
 import io.yupiik.fusion.http.server.api.WebServer;
 import io.yupiik.fusion.json.JsonMapper;
+import io.yupiik.hcms.configuration.HCMSConfiguration;
 import io.yupiik.hcms.service.model.Entity;
 import io.yupiik.hcms.service.model.ModelHandler;
 import io.yupiik.hcms.service.model.ModelLoader;
+import io.yupiik.hcms.service.model.ModelPlan;
 import io.yupiik.hcms.service.model.json.Model;
 import java.io.IOException;
-import java.io.Writer;
 import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -48,6 +51,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.TreeMap;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 @ApplicationScoped
@@ -55,34 +59,44 @@ public class DocEndpoint {
     private final JsonMapper jsonMapper;
     private final ModelHandler modelHandler;
     private final int port;
+    private final ModelPlan plan;
 
     private volatile String title;
-    private volatile Response openrpc;
-    private volatile Response openapi;
-    private final Map<String, byte[]> swaggerUIResources = new HashMap<>();
+    private volatile CachedResource openrpc;
+    private volatile CachedResource openapi;
+    private final Map<String, SwaggerUIAsset> swaggerUIResources = new HashMap<>();
+    private volatile CachedResource swaggerUIIndex;
     private volatile boolean enableOpenAPI;
+    private volatile Model lastModel;
+    private volatile StandardMethods standardMethods;
+    private volatile Map<Model.JsonRpcMethod, MethodDoc> methodDocs = Map.of();
+    private volatile String openrpcJson;
+    private volatile String openapiJson;
 
     public DocEndpoint(
             final ModelLoader.DynamicModel model,
             final JsonMapper jsonMapper,
             final ModelHandler modelHandler,
-            final WebServer webServer) {
+            final WebServer webServer,
+            final HCMSConfiguration configuration) {
         this.jsonMapper = jsonMapper;
         this.modelHandler = modelHandler;
 
         if (model == null) { // subclass case
             port = -1;
+            plan = null;
             return;
         }
 
         this.port = webServer.configuration().port();
-        reload(model.get());
-        model.onReload(this::reload);
+        this.plan = loadPlan(configuration.modelPlan());
         try {
             preloadSwaggerUI();
         } catch (final IOException e) {
             throw new IllegalStateException(e);
         }
+        reload(model.get());
+        model.onReload(this::reload);
     }
 
     @HttpMatcher(methods = "GET", pathMatching = STARTS_WITH, path = "/swagger-ui/")
@@ -92,129 +106,37 @@ public class DocEndpoint {
         }
 
         final var path = request.path().substring("/swagger-ui/".length());
-        final var builder = Response.of();
         if (path.isBlank() || "index.html".equals(path)) {
-            return builder.status(200)
-                    .header("content-type", "text/html")
-                    .body("<!DOCTYPE html>\n" + "<html lang=\"en\">\n"
-                            + "  <head>\n"
-                            + "    <meta charset=\"UTF-8\">\n"
-                            + "      <link rel=\"icon\" type=\"image/x-icon\" href=\"/swagger-ui/img/yupiik.png\">"
-                            + "    <title>"
-                            + title + "</title>\n"
-                            + "    <link rel=\"stylesheet\" type=\"text/css\" href=\"/swagger-ui/css/swagger-ui.css\" />\n"
-                            + "    <style>\n"
-                            + "    .topbar { display: none; }\n"
-                            + "    body {\n"
-                            + "     --yupiik-blue: #007bff;\n"
-                            + "     --yupiik-blue-light: #ECF5FF;\n"
-                            + "    }\n"
-                            + "    .swagger-ui .opblock.opblock-post .opblock-summary,\n"
-                            + "    .swagger-ui .opblock.opblock-post,\n"
-                            + "    .swagger-ui .response-control-media-type--accept-controller select {\n"
-                            + "      border-color: var(--yupiik-blue) !important;\n"
-                            + "    }\n"
-                            + "    .swagger-ui .response-control-media-type__accept-message {\n"
-                            + "      color: var(--yupiik-blue) !important;\n"
-                            + "    }\n"
-                            + "    .swagger-ui .opblock .opblock-summary-method,\n"
-                            + "    .swagger-ui .opblock.opblock-post .tab-header .tab-item.active h4 span:after {\n"
-                            + "      background: var(--yupiik-blue) !important;\n"
-                            + "    }\n"
-                            + "    .swagger-ui .opblock.opblock-post {\n"
-                            + "      background: var(--yupiik-blue-light) !important;\n"
-                            + "    }\n"
-                            + "    </style>\n"
-                            + "  </head>\n"
-                            + "  <body>\n"
-                            + "    <div id=\"swagger-ui\"></div>\n"
-                            + "    <script src=\"/swagger-ui/js/swagger-ui-bundle.js\" charset=\"UTF-8\"> </script>\n"
-                            + "    <script src=\"/swagger-ui/js/swagger-ui-standalone-preset.js\" charset=\"UTF-8\"> </script>\n"
-                            + "    <script>\n"
-                            + "      window.onload = function() {\n"
-                            + "        window.ui = SwaggerUIBundle({\n"
-                            + "          url: \"/openapi.json\",\n"
-                            + "          dom_id: '#swagger-ui',\n"
-                            + "          deepLinking: true,\n"
-                            + "          presets: [\n"
-                            + "            SwaggerUIBundle.presets.apis,\n"
-                            + "            SwaggerUIStandalonePreset,\n"
-                            + "          ],\n"
-                            + "          plugins: [\n"
-                            + "            SwaggerUIBundle.plugins.DownloadUrl,\n"
-                            + "          ],\n"
-                            + "          layout: \"StandaloneLayout\",\n"
-                            + "          requestInterceptor: function (request) {\n"
-                            + "            if (request.loadSpec) {\n"
-                            + "              return request;\n"
-                            + "            }\n"
-                            + "\n"
-                            + "            var method = request.url.substring(request.url.lastIndexOf('/jsonrpc/') + '/jsonrpc/'.length);\n"
-                            + "            var requestWithRightUrl = Object.assign(request, {\n"
-                            + "              url: request.url.substring(0, request.url.length - method.length - 1),\n"
-                            + "            });\n"
-                            + "\n"
-                            + "            var basic = request.headers.Authorization;\n"
-                            + "            if (basic && basic.indexOf('Basic ') === 0) {\n"
-                            + "              var up = atob(basic.substring('basic '.length));\n"
-                            + "              var sep = up.indexOf(':');\n"
-                            + "              var username = up.substring(0, sep);\n"
-                            + "              var password = up.substring(sep + 1);\n"
-                            + "              return fetch('/jsonrpc', { method: 'POST', body: JSON.stringify({ jsonrpc: '2.0', method: 'hcms.security.login', params: { username, password } }), headers: { 'accept': 'application/json;charset=utf-8', 'content-type': 'application/json;charset=utf-8' } })\n"
-                            + "                .then(res => res.json())\n"
-                            + "                .then(res => {\n"
-                            + "                  return Object.assign(requestWithRightUrl, {\n"
-                            + "                    headers: Object.assign(request.headers, { Authorization: 'Bearer ' + (res.result || {}).access_token }),\n"
-                            + "                  });\n"
-                            + "                });\n"
-                            + "            }\n"
-                            + "\n"
-                            + "            return requestWithRightUrl;\n"
-                            + "          },\n"
-                            + "        });\n"
-                            + "      };\n"
-                            + "    </script>\n"
-                            + "  </body>\n"
-                            + "</html>\n")
-                    .build();
+            return swaggerUIIndex.toResponse(request);
         }
 
-        final var encoding = request.header("accept-encoding");
-        byte[] content = null;
-        if (encoding != null && encoding.contains("gzip")) {
-            content = swaggerUIResources.get(path + ".gz");
-            if (content != null) {
-                builder.header("content-encoding", "gzip");
-            }
-        }
-        if (content == null) {
-            content = swaggerUIResources.get(path);
+        final var asset = swaggerUIResources.get(path);
+        if (asset != null) {
+            return asset.revalidated().toResponse(request);
         }
 
-        if (content != null) {
-            return builder.status(200)
-                    .header(
-                            "content-type",
-                            path.endsWith(".js")
-                                    ? "application/javascript"
-                                    : (path.endsWith(".css")
-                                            ? "text/css"
-                                            : (path.endsWith(".png") ? "image/png" : "application/octet-stream")))
-                    .body(HttpRequest.BodyPublishers.ofByteArray(content))
-                    .build();
+        // versioned path (see swaggerUIAsset()), content can't change for this url
+        final int sep = path.indexOf('/');
+        if (sep > 0) {
+            final var versioned = swaggerUIResources.get(path.substring(sep + 1));
+            if (versioned != null && versioned.immutable().version().equals(path.substring(0, sep))) {
+                return versioned.immutable().toResponse(request);
+            }
         }
 
-        return builder.status(404).build();
+        return Response.of().status(404).build();
     }
 
     @HttpMatcher(methods = "GET", pathMatching = EXACT, path = "/openrpc.json")
-    public Response getOpenRPC() {
-        return openrpc;
+    public Response getOpenRPC(final Request request) {
+        final var resource = openrpc;
+        return resource == null ? Response.of().status(404).build() : resource.toResponse(request);
     }
 
     @HttpMatcher(methods = "GET", pathMatching = EXACT, path = "/openapi.json")
-    public Response getOpenAPI() {
-        return openapi;
+    public Response getOpenAPI(final Request request) {
+        final var resource = openapi;
+        return resource == null ? Response.of().status(404).build() : resource.toResponse(request);
     }
 
     private void preloadSwaggerUI() throws IOException {
@@ -240,20 +162,172 @@ public class DocEndpoint {
     private void loadSwaggerResource(final ClassLoader loader, final String relocated, final String rawRes)
             throws IOException {
         final var res = loader.getResourceAsStream(rawRes);
-        if (res != null) {
-            try (res) {
-                swaggerUIResources.put(relocated, res.readAllBytes());
-            }
-            if (!relocated.endsWith(".gz")) {
-                loadSwaggerResource(loader, relocated + ".gz", rawRes + ".gz");
-            }
+        if (res == null) {
+            return;
+        }
+
+        final byte[] content;
+        try (res) {
+            content = res.readAllBytes();
+        }
+        final byte[] gzip;
+        try (final var gz = loader.getResourceAsStream(rawRes + ".gz")) {
+            gzip = gz == null ? null : gz.readAllBytes(); // if missing it is computed
+        }
+
+        final var resource = CachedResource.of(contentType(relocated), "no-cache", content, gzip);
+        swaggerUIResources.put(
+                relocated,
+                new SwaggerUIAsset(resource, resource.withCacheControl("public, max-age=31536000, immutable")));
+    }
+
+    private String contentType(final String path) {
+        return path.endsWith(".js")
+                ? "application/javascript"
+                : (path.endsWith(".css")
+                        ? "text/css"
+                        : (path.endsWith(".png") ? "image/png" : "application/octet-stream"));
+    }
+
+    private String swaggerUIAsset(final String path) {
+        final var asset = swaggerUIResources.get(path);
+        return "/swagger-ui/" + (asset == null ? "" : asset.immutable().version() + '/') + path;
+    }
+
+    // computed once per reload since it only depends on the title
+    private CachedResource swaggerUIIndex() {
+        return CachedResource.of("text/html", "no-cache", swaggerUIIndexHtml().getBytes(UTF_8), null);
+    }
+
+    private String swaggerUIIndexHtml() {
+        return "<!DOCTYPE html>\n" + "<html lang=\"en\">\n"
+                + "  <head>\n"
+                + "    <meta charset=\"UTF-8\">\n"
+                + "      <link rel=\"icon\" type=\"image/x-icon\" href=\"" + swaggerUIAsset("img/yupiik.png") + "\">"
+                + "    <title>"
+                + title + "</title>\n"
+                + "    <link rel=\"stylesheet\" type=\"text/css\" href=\""
+                + swaggerUIAsset("css/swagger-ui.css") + "\" />\n"
+                + "    <style>\n"
+                + "    .topbar { display: none; }\n"
+                + "    body {\n"
+                + "     --yupiik-blue: #007bff;\n"
+                + "     --yupiik-blue-light: #ECF5FF;\n"
+                + "    }\n"
+                + "    .swagger-ui .opblock.opblock-post .opblock-summary,\n"
+                + "    .swagger-ui .opblock.opblock-post,\n"
+                + "    .swagger-ui .response-control-media-type--accept-controller select {\n"
+                + "      border-color: var(--yupiik-blue) !important;\n"
+                + "    }\n"
+                + "    .swagger-ui .response-control-media-type__accept-message {\n"
+                + "      color: var(--yupiik-blue) !important;\n"
+                + "    }\n"
+                + "    .swagger-ui .opblock .opblock-summary-method,\n"
+                + "    .swagger-ui .opblock.opblock-post .tab-header .tab-item.active h4 span:after {\n"
+                + "      background: var(--yupiik-blue) !important;\n"
+                + "    }\n"
+                + "    .swagger-ui .opblock.opblock-post {\n"
+                + "      background: var(--yupiik-blue-light) !important;\n"
+                + "    }\n"
+                + "    </style>\n"
+                + "  </head>\n"
+                + "  <body>\n"
+                + "    <div id=\"swagger-ui\"></div>\n"
+                + "    <script src=\"" + swaggerUIAsset("js/swagger-ui-bundle.js") + "\" charset=\"UTF-8\"> </script>\n"
+                + "    <script src=\"" + swaggerUIAsset("js/swagger-ui-standalone-preset.js")
+                + "\" charset=\"UTF-8\"> </script>\n"
+                + "    <script>\n"
+                + "      window.onload = function() {\n"
+                + "        window.ui = SwaggerUIBundle({\n"
+                + "          url: \"/openapi.json\",\n"
+                + "          dom_id: '#swagger-ui',\n"
+                + "          deepLinking: true,\n"
+                + "          presets: [\n"
+                + "            SwaggerUIBundle.presets.apis,\n"
+                + "            SwaggerUIStandalonePreset,\n"
+                + "          ],\n"
+                + "          plugins: [\n"
+                + "            SwaggerUIBundle.plugins.DownloadUrl,\n"
+                + "          ],\n"
+                + "          layout: \"StandaloneLayout\",\n"
+                + "          requestInterceptor: function (request) {\n"
+                + "            if (request.loadSpec) {\n"
+                + "              return request;\n"
+                + "            }\n"
+                + "\n"
+                + "            var method = request.url.substring(request.url.lastIndexOf('/jsonrpc/') + '/jsonrpc/'.length);\n"
+                + "            var requestWithRightUrl = Object.assign(request, {\n"
+                + "              url: request.url.substring(0, request.url.length - method.length - 1),\n"
+                + "            });\n"
+                + "\n"
+                + "            var basic = request.headers.Authorization;\n"
+                + "            if (basic && basic.indexOf('Basic ') === 0) {\n"
+                + "              var up = atob(basic.substring('basic '.length));\n"
+                + "              var sep = up.indexOf(':');\n"
+                + "              var username = up.substring(0, sep);\n"
+                + "              var password = up.substring(sep + 1);\n"
+                + "              return fetch('/jsonrpc', { method: 'POST', body: JSON.stringify({ jsonrpc: '2.0', method: 'hcms.security.login', params: { username, password } }), headers: { 'accept': 'application/json;charset=utf-8', 'content-type': 'application/json;charset=utf-8' } })\n"
+                + "                .then(res => res.json())\n"
+                + "                .then(res => {\n"
+                + "                  return Object.assign(requestWithRightUrl, {\n"
+                + "                    headers: Object.assign(request.headers, { Authorization: 'Bearer ' + (res.result || {}).access_token }),\n"
+                + "                  });\n"
+                + "                });\n"
+                + "            }\n"
+                + "\n"
+                + "            return requestWithRightUrl;\n"
+                + "          },\n"
+                + "        });\n"
+                + "      };\n"
+                + "    </script>\n"
+                + "  </body>\n"
+                + "</html>\n";
+    }
+
+    /**
+     * @param model the model to create a plan for, it must be the currently deployed one.
+     * @return the precompiled documentation of the model.
+     */
+    public ModelPlan plan(final Model model) {
+        return new ModelPlan(ModelPlan.hash(jsonMapper, model), port, title, openrpcJson, openapiJson);
+    }
+
+    private ModelPlan loadPlan(final String location) {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        final var path = Path.of(location);
+        if (!Files.exists(path)) {
+            Logger.getLogger(getClass().getName()).warning(() -> "No model plan '" + path + "', ignoring it");
+            return null;
+        }
+        try {
+            return jsonMapper.fromString(ModelPlan.class, Files.readString(path));
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
         }
     }
 
     private void reload(final Model model) {
+        if (model.equals(lastModel)) { // nothing changed so specs are the same
+            return;
+        }
+        lastModel = model;
+
         enableOpenAPI = model.enableOpenAPI() == null || model.enableOpenAPI();
         final boolean enableOpenRPC = model.enableOpenRPC() == null || model.enableOpenRPC();
 
+        if (plan != null && plan.port() == port && plan.modelHash().equals(ModelPlan.hash(jsonMapper, model))) {
+            Logger.getLogger(getClass().getName()).info("Using precompiled model plan for documentation");
+            title = plan.title();
+            openrpcJson = plan.openrpc();
+            openapiJson = plan.openapi();
+            this.openrpc = enableOpenRPC && openrpcJson != null ? jsonResource(openrpcJson) : null;
+            this.openapi = enableOpenAPI && openapiJson != null ? jsonResource(openapiJson) : null;
+            this.swaggerUIIndex = swaggerUIIndex();
+            return;
+        }
+
         final var openRPC = new TreeMap<>();
 
         if (enableOpenAPI || enableOpenRPC) {
@@ -264,21 +338,21 @@ public class DocEndpoint {
         final var sanitizedOpenRPC = jsonOpenRPC
                 // retranslate schema to openrpc location
                 .replace("#/$defs/", "#/components/schema/");
-        this.openrpc = enableOpenRPC
-                ? Response.of()
-                        .status(200)
-                        .header("Pragma", "no-cache")
-                        .header("Cache-Control", "no-store")
-                        .header("Content-Type", "application/json")
-                        .body((IOConsumer<Writer>) io -> io.write(sanitizedOpenRPC))
-                        .build()
-                : Response.of().status(404).build();
+        this.openrpcJson = enableOpenRPC ? sanitizedOpenRPC : null;
+        this.openrpc = enableOpenRPC ? jsonResource(sanitizedOpenRPC) : null;
 
         if (enableOpenAPI) {
             computeOpenAPI(model, jsonOpenRPC);
         } else {
-            this.openapi = Response.of().status(404).build();
+            this.openapiJson = null;
+            this.openapi = null;
         }
+        this.swaggerUIIndex = swaggerUIIndex();
+    }
+
+    // serialized and compressed once per reload, clients revalidate with the ETag since it changes with the model
+    private CachedResource jsonResource(final String json) {
+        return CachedResource.of("application/json", "no-cache", json.getBytes(UTF_8), null);
     }
 
     @SuppressWarnings("unchecked")
@@ -411,13 +485,8 @@ public class DocEndpoint {
                 return input.replace("\"#/$defs/", "\"#/components/schemas/");
             }
         }.convert(copyOpenRPC, jsonMapper);
-        this.openapi = Response.of()
-                .status(200)
-                .header("Pragma", "no-cache")
-                .header("Cache-Control", "no-store")
-                .header("Content-Type", "application/json")
-                .body((IOConsumer<Writer>) io -> io.write(openapi))
-                .build();
+        this.openapiJson = openapi;
+        this.openapi = jsonResource(openapi);
     }
 
     @SuppressWarnings("unchecked")
@@ -457,12 +526,77 @@ public class DocEndpoint {
         return schema;
     }
 
-    @SuppressWarnings("unchecked")
     private Map<String, Object> buildMethods(final Model model) {
+        final var standard = loadStandardMethods();
+        final var methods = new ArrayList<Map<String, Object>>(standard.methods());
+        final var schemas = new TreeMap<String, Object>(standard.schemas());
+
+        // create virtual schemas
+        final var entities = modelHandler.entities();
+        if (entities != null) {
+            schemas.putAll(entities.values().stream().collect(toMap(Entity::name, Entity::schema)));
+
+            // create virtual methods
+            final var renderers = Stream.concat(
+                            Stream.of(new String[] {null}),
+                            modelHandler.availableRenderers().keySet().stream().sorted())
+                    .toList();
+
+            // reuse the documentation of the methods which did not change (same spec and same compiled entity)
+            final var previous = methodDocs;
+            final var next = new HashMap<Model.JsonRpcMethod, MethodDoc>();
+            for (final var m : model.jsonRpcMethods()) {
+                final var entity = entities.get(m.entityName());
+                final var existing = previous.get(m);
+                final var doc = existing != null && existing.entity() == entity
+                        ? existing
+                        : new MethodDoc(entity, buildMethod(renderers, entities, m));
+                next.put(m, doc);
+                methods.addAll(doc.methods());
+            }
+            methodDocs = next;
+        }
+
+        return Map.of(
+                "components",
+                Map.of("schemas", schemas),
+                "methods",
+                methods.stream()
+                        .sorted(comparing(m -> m.get("name").toString()))
+                        .toList());
+    }
+
+    private List<Map<String, Object>> buildMethod(
+            final List<String> renderers, final Map<String, Entity> entities, final Model.JsonRpcMethod m) {
+        return switch (m.type() == null ? CRUD : m.type()) {
+            case CRUD -> List.of(
+                    findAll(renderers, entities, m),
+                    findById(renderers, entities, m),
+                    deleteById(entities, m),
+                    create(entities, m),
+                    update(entities, m));
+            case FIND_ALL -> List.of(findAll(renderers, entities, m));
+            case FIND_BY_ID -> List.of(findById(renderers, entities, m));
+            case DELETE_BY_ID -> List.of(deleteById(entities, m));
+            case CREATE -> List.of(create(entities, m));
+            case UPDATE -> List.of(update(entities, m));
+            case PATCH -> List.of(patch(entities, m));
+            case UPSERT -> List.of(upsert(entities, m));
+            case DELETE_BY_FILTER -> List.of(deleteByFilter(entities, m));
+            case UPDATE_BY_FILTER -> List.of(updateByFilter(entities, m));
+            case AGGREGATE -> List.of(aggregate(entities, m));
+        };
+    }
+
+    // standard methods - "programmatically", they can't change at runtime so they are loaded once
+    @SuppressWarnings("unchecked")
+    private StandardMethods loadStandardMethods() {
+        if (standardMethods != null) {
+            return standardMethods;
+        }
+
         final var methods = new ArrayList<Map<String, Object>>();
         final var schemas = new TreeMap<String, Object>();
-
-        // standard methods - "programmatically"
         try {
             final var resources =
                     Thread.currentThread().getContextClassLoader().getResources("META-INF/fusion/jsonrpc/openrpc.json");
@@ -489,40 +623,8 @@ public class DocEndpoint {
             throw new IllegalStateException(e);
         }
 
-        // create virtual schemas
-        final var entities = modelHandler.entities();
-        if (entities != null) {
-            schemas.putAll(entities.values().stream().collect(toMap(Entity::name, Entity::schema)));
-
-            // create virtual methods
-            final var renderers = Stream.concat(
-                            Stream.of(new String[] {null}),
-                            modelHandler.availableRenderers().keySet().stream().sorted())
-                    .toList();
-            methods.addAll(model.jsonRpcMethods().stream()
-                    .flatMap(m -> switch (m.type() == null ? CRUD : m.type()) {
-                        case CRUD -> Stream.of(
-                                findAll(renderers, entities, m),
-                                findById(renderers, entities, m),
-                                deleteById(entities, m),
-                                create(entities, m),
-                                update(entities, m));
-                        case FIND_ALL -> Stream.of(findAll(renderers, entities, m));
-                        case FIND_BY_ID -> Stream.of(findById(renderers, entities, m));
-                        case DELETE_BY_ID -> Stream.of(deleteById(entities, m));
-                        case CREATE -> Stream.of(create(entities, m));
-                        case UPDATE -> Stream.of(update(entities, m));
-                    })
-                    .toList());
-        }
-
-        return Map.of(
-                "components",
-                Map.of("schemas", schemas),
-                "methods",
-                methods.stream()
-                        .sorted(comparing(m -> m.get("name").toString()))
-                        .toList());
+        standardMethods = new StandardMethods(schemas, methods);
+        return standardMethods;
     }
 
     private Map<String, Object> findAll(
@@ -556,54 +658,17 @@ public class DocEndpoint {
                                                         entity.schema()
                                                                 .properties()
                                                                 .keySet()),
-                                                fieldsParam(entity.schema()
-                                                        .properties()
-                                                        .keySet()))),
+                                                Stream.concat(
+                                                        fieldsParam(entity.schema()
+                                                                .properties()
+                                                                .keySet()),
+                                                        includeParam(entity)))),
                                 Stream.concat(
                                         entity.allowedFilterKeys() == null
                                                         || entity.allowedFilterKeys()
                                                                 .isEmpty()
                                                 ? Stream.empty()
-                                                : Stream.of(
-                                                        Map.of(
-                                                                "name",
-                                                                "filters",
-                                                                "description",
-                                                                "List of filters to apply on the entity '"
-                                                                        + method.entityName() + "'",
-                                                                "schema",
-                                                                Map.of(
-                                                                        "type",
-                                                                        "object",
-                                                                        "additionalProperties",
-                                                                        false,
-                                                                        "properties",
-                                                                        new TreeMap<>(
-                                                                                entity.allowedFilterKeys().stream()
-                                                                                        .collect(
-                                                                                                toMap(
-                                                                                                        identity(),
-                                                                                                        k -> Map.of(
-                                                                                                                "type",
-                                                                                                                "object",
-                                                                                                                "properties",
-                                                                                                                Map.of(
-                                                                                                                        "operator",
-                                                                                                                        Map
-                                                                                                                                .of(
-                                                                                                                                        "type",
-                                                                                                                                        "string",
-                                                                                                                                        "enum",
-                                                                                                                                        entity
-                                                                                                                                                .allowedWhereOperators()
-                                                                                                                                                .stream()
-                                                                                                                                                .sorted()
-                                                                                                                                                .toList()),
-                                                                                                                        "value",
-                                                                                                                        entity.schema()
-                                                                                                                                .properties()
-                                                                                                                                .get(
-                                                                                                                                        k))))))))),
+                                                : Stream.of(filtersParam(entity, method.entityName())),
                                         entity.allowedSortKeys() == null
                                                         || entity.allowedSortKeys()
                                                                 .isEmpty()
@@ -676,15 +741,45 @@ public class DocEndpoint {
                                                 "schema",
                                                 entity.schema().properties().get(id))),
                                 Stream.concat(
-                                        renderersParam(
-                                                renderers,
-                                                entity.schema().properties().keySet()),
-                                        fieldsParam(entity.schema().properties().keySet())))
+                                        Stream.concat(
+                                                renderersParam(
+                                                        renderers,
+                                                        entity.schema().properties().keySet()),
+                                                fieldsParam(entity.schema().properties().keySet())),
+                                        Stream.concat(Stream.of(ifNoneMatchParam()), includeParam(entity))))
                         .toList(),
                 "result",
                 Map.of("name", "entity", "schema", entity.schema()));
     }
 
+    private Stream<Map<String, Object>> includeParam(final Entity entity) {
+        if (entity.relations().isEmpty()) {
+            return Stream.empty();
+        }
+        return Stream.of(Map.of(
+                "name",
+                "include",
+                "description",
+                "Relations to load with the entities ("
+                        + entity.relations().keySet().stream().sorted().collect(joining(", "))
+                        + "), nested relations can be loaded using a dotted path "
+                        + "(`relation.subRelation`, max depth is 3).",
+                "schema",
+                Map.of("type", "array", "items", Map.of("type", "string"))));
+    }
+
+    private Map<String, Object> ifNoneMatchParam() {
+        return Map.of(
+                "name",
+                "ifNoneMatch",
+                "description",
+                "When set (can be `null` for the first call), the result gets an `_etag` attribute. "
+                        + "If it matches the current one, `{\"_notModified\":true,\"_etag\":\"...\"}` is returned "
+                        + "instead of the entity.",
+                "schema",
+                Map.of("type", "string", "nullable", true));
+    }
+
     private Stream<Map<String, Object>> renderersParam(
             final List<String> availableRenderers, final Collection<String> fields) {
         if (availableRenderers.isEmpty()) {
@@ -791,7 +886,69 @@ public class DocEndpoint {
                         ? method.description()
                         : "Update an instance of '" + entity.name() + "'.",
                 "params",
+                Stream.concat(
+                                entity.schema().properties().entrySet().stream()
+                                        .map(e -> Map.<String, Object>of(
+                                                "name", e.getKey(),
+                                                "description", "`" + e.getKey() + "` value.",
+                                                "schema", e.getValue())),
+                                entity.revisionProperty() == null
+                                        ? Stream.empty()
+                                        : Stream.of(Map.<String, Object>of(
+                                                "name",
+                                                "expectedRevision",
+                                                "description",
+                                                "If set, the update only succeeds if the current `"
+                                                        + entity.revisionProperty()
+                                                        + "` is this value, else a `409` error is returned.",
+                                                "schema",
+                                                entity.schema()
+                                                        .properties()
+                                                        .get(entity.revisionProperty()))))
+                        .toList(),
+                "result",
+                Map.of("name", "entity", "schema", entity.schema()));
+    }
+
+    private Map<String, Object> patch(final Map<String, Entity> entities, final Model.JsonRpcMethod method) {
+        final var entity = entities.get(method.entityName());
+        return Map.of(
+                "name",
+                method.entityName() + ".patch",
+                "description",
+                method.description() != null && !method.description().isBlank()
+                        ? method.description()
+                        : "Partially update an instance of '" + entity.name()
+                                + "', only provided attributes are written (`null` clears the value).",
+                "params",
+                entity.schema().properties().entrySet().stream()
+                        .filter(e -> entity.revisionProperty() == null
+                                || !Objects.equals(entity.revisionProperty(), e.getKey()))
+                        .map(e -> Map.of(
+                                "name", e.getKey(),
+                                "description",
+                                        entity.identifiers().contains(e.getKey())
+                                                ? "`" + e.getKey() + "` identifier value."
+                                                : "`" + e.getKey() + "` value, ignored if absent.",
+                                "schema", e.getValue()))
+                        .toList(),
+                "result",
+                Map.of("name", "entity", "schema", entity.schema()));
+    }
+
+    private Map<String, Object> upsert(final Map<String, Entity> entities, final Model.JsonRpcMethod method) {
+        final var entity = entities.get(method.entityName());
+        return Map.of(
+                "name",
+                method.entityName() + ".upsert",
+                "description",
+                method.description() != null && !method.description().isBlank()
+                        ? method.description()
+                        : "Create an instance of '" + entity.name() + "' or update it if it already exists.",
+                "params",
                 entity.schema().properties().entrySet().stream()
+                        .filter(e -> entity.revisionProperty() == null
+                                || !Objects.equals(entity.revisionProperty(), e.getKey()))
                         .map(e -> Map.of(
                                 "name", e.getKey(),
                                 "description", "`" + e.getKey() + "` value.",
@@ -800,4 +957,191 @@ public class DocEndpoint {
                 "result",
                 Map.of("name", "entity", "schema", entity.schema()));
     }
+
+    private Map<String, Object> deleteByFilter(
+            final Map<String, Entity> entities, final Model.JsonRpcMethod method) {
+        final var entity = entities.get(method.entityName());
+        return Map.of(
+                "name",
+                method.entityName() + ".deleteByFilter",
+                "description",
+                method.description() != null && !method.description().isBlank()
+                        ? method.description()
+                        : "Delete all '" + entity.name() + "' matching the filters.",
+                "params",
+                List.of(filtersParam(entity, method.entityName())),
+                "result",
+                affectedResult());
+    }
+
+    private Map<String, Object> updateByFilter(
+            final Map<String, Entity> entities, final Model.JsonRpcMethod method) {
+        final var entity = entities.get(method.entityName());
+        return Map.of(
+                "name",
+                method.entityName() + ".updateByFilter",
+                "description",
+                method.description() != null && !method.description().isBlank()
+                        ? method.description()
+                        : "Update all '" + entity.name() + "' matching the filters with the provided values.",
+                "params",
+                List.of(
+                        filtersParam(entity, method.entityName()),
+                        Map.of(
+                                "name",
+                                "values",
+                                "description",
+                                "Attributes to set on the matching entities, absent ones are not modified.",
+                                "schema",
+                                Map.of(
+                                        "type",
+                                        "object",
+                                        "additionalProperties",
+                                        false,
+                                        "properties",
+                                        entity.schema().properties().entrySet().stream()
+                                                .filter(e -> !entity.identifiers().contains(e.getKey()))
+                                                .filter(e -> !Objects.equals(entity.revisionProperty(), e.getKey()))
+                                                .collect(toMap(
+                                                        Map.Entry::getKey,
+                                                        Map.Entry::getValue,
+                                                        (a, b) -> a,
+                                                        TreeMap::new))))),
+                "result",
+                affectedResult());
+    }
+
+    private Map<String, Object> aggregate(final Map<String, Entity> entities, final Model.JsonRpcMethod method) {
+        final var entity = entities.get(method.entityName());
+        final var aggregation = entity.aggregation();
+        final var groupByKeys = aggregation == null || aggregation.allowedGroupByKeys() == null
+                ? List.<String>of()
+                : aggregation.allowedGroupByKeys().stream().sorted().toList();
+        final var aggregatedKeys = aggregation == null || aggregation.allowedAggregatedKeys() == null
+                ? List.<String>of()
+                : aggregation.allowedAggregatedKeys().stream().sorted().toList();
+        final var functions = aggregation == null || aggregation.allowedFunctions() == null
+                ? List.of("count")
+                : aggregation.allowedFunctions().stream().sorted().toList();
+        return Map.of(
+                "name",
+                method.entityName() + ".aggregate",
+                "description",
+                method.description() != null && !method.description().isBlank()
+                        ? method.description()
+                        : "Compute aggregations on '" + entity.name() + "' grouped by some keys.",
+                "params",
+                List.of(
+                        Map.of(
+                                "name",
+                                "groupBy",
+                                "description",
+                                "Properties to group the entities by, if absent the aggregations are computed on all "
+                                        + "matching entities.",
+                                "schema",
+                                Map.of("type", "array", "items", Map.of("type", "string", "enum", groupByKeys))),
+                        Map.of(
+                                "name",
+                                "aggregates",
+                                "description",
+                                "Aggregations to compute, default to a count. "
+                                        + "Only `count` can be used without a property.",
+                                "schema",
+                                Map.of(
+                                        "type",
+                                        "array",
+                                        "items",
+                                        Map.of(
+                                                "type",
+                                                "object",
+                                                "additionalProperties",
+                                                false,
+                                                "required",
+                                                List.of("function"),
+                                                "properties",
+                                                Map.of(
+                                                        "function",
+                                                        Map.of("type", "string", "enum", functions),
+                                                        "property",
+                                                        Map.of("type", "string", "enum", aggregatedKeys))))),
+                        filtersParam(entity, method.entityName())),
+                "result",
+                Map.of(
+                        "name",
+                        "result",
+                        "schema",
+                        Map.of(
+                                "type",
+                                "object",
+                                "properties",
+                                Map.of(
+                                        "columns",
+                                        Map.of(
+                                                "type",
+                                                "array",
+                                                "description",
+                                                "Group keys then aggregation names "
+                                                        + "(`count` or `<function>_<property>`).",
+                                                "items",
+                                                Map.of("type", "string")),
+                                        "items",
+                                        Map.of(
+                                                "type",
+                                                "array",
+                                                "description",
+                                                "One array per group, values are in the `columns` order.",
+                                                "items",
+                                                Map.of("type", "array"))))));
+    }
+
+    private Map<String, Object> affectedResult() {
+        return Map.of(
+                "name",
+                "result",
+                "schema",
+                Map.of(
+                        "type",
+                        "object",
+                        "properties",
+                        Map.of("affected", Map.of("type", "number", "description", "Number of modified rows."))));
+    }
+
+    private Map<String, Object> filtersParam(final Entity entity, final String entityName) {
+        return Map.of(
+                "name",
+                "filters",
+                "description",
+                "List of filters to apply on the entity '" + entityName + "'",
+                "schema",
+                Map.of(
+                        "type",
+                        "object",
+                        "additionalProperties",
+                        false,
+                        "properties",
+                        new TreeMap<>(entity.allowedFilterKeys().stream()
+                                .collect(toMap(
+                                        identity(),
+                                        k -> Map.of(
+                                                "type",
+                                                "object",
+                                                "properties",
+                                                Map.of(
+                                                        "operator",
+                                                        Map.of(
+                                                                "type",
+                                                                "string",
+                                                                "enum",
+                                                                entity.allowedWhereOperators().stream()
+                                                                        .sorted()
+                                                                        .toList()),
+                                                        "value",
+                                                        entity.schema().properties().get(k))))))));
+    }
+
+    private record StandardMethods(Map<String, Object> schemas, List<Map<String, Object>> methods) {}
+
+    private record MethodDoc(Entity entity, List<Map<String, Object>> methods) {}
+
+    private record SwaggerUIAsset(CachedResource revalidated, CachedResource immutable) {}
 }
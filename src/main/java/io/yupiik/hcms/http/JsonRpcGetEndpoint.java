@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.http;
+
+import static io.yupiik.fusion.framework.build.api.http.HttpMatcher.PathMatching.STARTS_WITH;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.logging.Level.SEVERE;
+
+import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
+import io.yupiik.fusion.framework.build.api.http.HttpMatcher;
+import io.yupiik.fusion.http.server.api.Request;
+import io.yupiik.fusion.http.server.api.Response;
+import io.yupiik.fusion.json.JsonMapper;
+import io.yupiik.fusion.jsonrpc.JsonRpcException;
+import io.yupiik.fusion.jsonrpc.impl.JsonRpcMethod;
+import io.yupiik.hcms.service.model.ModelHandler;
+import java.net.URLDecoder;
+import java.net.http.HttpRequest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.logging.Logger;
+
+/**
+ * Enables to call anonymous read methods ({@code findById}, {@code findAll}) with
+ * {@code GET /jsonrpc/<method>?params=<json>} so browsers and CDN can cache the responses,
+ * it handles {@code ETag}/{@code If-None-Match}.
+ */
+@ApplicationScoped
+public class JsonRpcGetEndpoint {
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private final ModelHandler modelHandler;
+    private final JsonMapper jsonMapper;
+
+    public JsonRpcGetEndpoint(final ModelHandler modelHandler, final JsonMapper jsonMapper) {
+        this.modelHandler = modelHandler;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @HttpMatcher(methods = "GET", pathMatching = STARTS_WITH, path = "/jsonrpc/")
+    public CompletionStage<Response> get(final Request request) {
+        final var name = request.path().substring("/jsonrpc/".length());
+        final var method = modelHandler.findHttpReadMethod(name);
+        if (method == null) {
+            return completedFuture(error(404, -32601, "Unknown method (" + name + ") or not readable with GET", null));
+        }
+
+        final Object params;
+        try {
+            params = findParams(request.query());
+        } catch (final RuntimeException re) {
+            return completedFuture(error(400, -32700, "Invalid params: " + re.getMessage(), null));
+        }
+        // related entities can have another security and don't change the revision so they are not cacheable
+        if (params instanceof Map<?, ?> map && map.get("include") != null) {
+            return completedFuture(
+                    error(400, -32602, "include is not supported with GET, use a JSON-RPC POST", null));
+        }
+
+        CompletionStage<?> invocation;
+        try {
+            invocation = method.method().invoke(new JsonRpcMethod.Context(request, params));
+        } catch (final RuntimeException re) { // security checks can fail synchronously
+            invocation = failedFuture(re);
+        }
+        return invocation
+                .thenApply(result -> toResponse(request, method, result))
+                .exceptionally(this::onError);
+    }
+
+    private Response toResponse(final Request request, final ModelHandler.HttpReadMethod method, final Object result) {
+        final var envelope = new LinkedHashMap<String, Object>(); // stable order for the etag
+        envelope.put("jsonrpc", "2.0");
+        envelope.put("result", result);
+        final var body = jsonMapper.toString(envelope).getBytes(UTF_8);
+        final var etag = etag(method.entity().revisionProperty(), request.query(), result, body);
+
+        // a JWT can be used by renderers so the response is only cacheable by the caller
+        final var response = Response.of()
+                .header("ETag", etag)
+                .header(
+                        "Cache-Control",
+                        request.header("authorization") != null
+                                ? "private, no-store"
+                                : method.entity().httpCacheControl());
+        if (CachedResource.matches(request.header("if-none-match"), etag)) {
+            return response.status(304).build();
+        }
+        return response.status(200)
+                .header("content-type", "application/json")
+                .body(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private Response onError(final Throwable error) {
+        final var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof JsonRpcException jre) {
+            final int code = jre.code();
+            return error(code >= 400 && code < 600 ? code : 400, code, jre.getMessage(), jre.data());
+        }
+        logger.log(SEVERE, cause, cause::getMessage);
+        return error(500, -32603, "Can't execute the action", null);
+    }
+
+    // when there is a revision the etag does not need the payload but the revision is per query (fields etc)
+    private String etag(final String revision, final String query, final Object result, final byte[] body) {
+        if (revision != null && result instanceof Map<?, ?> map && map.get(revision) != null) {
+            return "\"" + CachedResource.hash(String.valueOf(query).getBytes(UTF_8)) + '-' + map.get(revision) + '"';
+        }
+        return '"' + CachedResource.hash(body) + '"';
+    }
+
+    private Object findParams(final String query) {
+        if (query == null || query.isBlank()) {
+            return Map.of();
+        }
+        for (final var param : query.split("&")) {
+            if (param.startsWith("params=")) {
+                return jsonMapper.fromString(
+                        Object.class, URLDecoder.decode(param.substring("params=".length()), UTF_8));
+            }
+        }
+        return Map.of();
+    }
+
+    private Response error(final int status, final int code, final String message, final Object data) {
+        final var error = new LinkedHashMap<String, Object>();
+        error.put("code", code);
+        error.put("message", message);
+        if (data != null) {
+            error.put("data", data);
+        }
+        return Response.of()
+                .status(status)
+                .header("content-type", "application/json")
+                .header("Cache-Control", "no-store")
+                .body(jsonMapper.toString(Map.of("jsonrpc", "2.0", "error", error)))
+                .build();
+    }
+}
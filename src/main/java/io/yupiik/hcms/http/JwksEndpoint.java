@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.http;
+
+import static io.yupiik.fusion.framework.build.api.http.HttpMatcher.PathMatching.EXACT;
+
+import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
+import io.yupiik.fusion.framework.build.api.http.HttpMatcher;
+import io.yupiik.fusion.http.server.api.IOConsumer;
+import io.yupiik.fusion.http.server.api.Response;
+import io.yupiik.fusion.json.JsonMapper;
+import io.yupiik.hcms.service.security.JwtService;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Exposes the public keys used to sign tokens so clients can validate them without calling the server.
+ */
+@ApplicationScoped
+public class JwksEndpoint {
+    private final String jwks;
+
+    public JwksEndpoint(final JsonMapper jsonMapper, final JwtService jwtService) {
+        this.jwks = jsonMapper == null // subclass case
+                ? null
+                : jsonMapper.toString(Map.of("keys", jwtService.jwks()));
+    }
+
+    @HttpMatcher(methods = "GET", pathMatching = EXACT, path = "/.well-known/jwks.json")
+    public Response getJwks() {
+        return Response.of()
+                .status(200)
+                .header("Cache-Control", "public, max-age=300")
+                .header("Content-Type", "application/json")
+                .body((IOConsumer<Writer>) io -> io.write(jwks))
+                .build();
+    }
+}
@@ -29,16 +29,25 @@ import io.yupiik.fusion.jwt.Jwt;
 import io.yupiik.fusion.persistence.api.TransactionManager;
 import io.yupiik.hcms.configuration.HCMSConfiguration;
 import io.yupiik.hcms.jsonrpc.model.ErrorMessage;
+import io.yupiik.hcms.jsonrpc.model.Revocation;
 import io.yupiik.hcms.jsonrpc.model.Token;
 import io.yupiik.hcms.service.persistence.UserRepository;
 import io.yupiik.hcms.service.persistence.entity.User;
+import io.yupiik.hcms.service.persistence.entity.UserRoles;
 import io.yupiik.hcms.service.security.JwtService;
+import io.yupiik.hcms.service.security.LoginThrottler;
 import io.yupiik.hcms.service.security.PasswordEncoder;
+import io.yupiik.hcms.service.security.PasswordHashingExecutor;
+import io.yupiik.hcms.service.security.SecurityHandler;
+import io.yupiik.hcms.service.security.TokenRevocationService;
+import io.yupiik.hcms.service.security.UserCache;
 import io.yupiik.hcms.service.tracing.ClientSpanService;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -52,6 +61,14 @@ public class SecurityEndpoints {
     private final TransactionManager transactionManager;
     private final JwtService jwtService;
     private final ClientSpanService spans;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final UserCache userCache;
+    private final SecurityHandler securityHandler;
+    private final TokenRevocationService revocations;
+    private final LoginThrottler loginThrottler;
+
+    // rehash write and token signing run there to keep the bounded hashing pool for hashing only
+    private final Executor afterHashing = task -> Thread.ofVirtual().name("hcms-login").start(task);
 
     public SecurityEndpoints(
             final HCMSConfiguration configuration,
@@ -59,13 +76,23 @@ public class SecurityEndpoints {
             final UserRepository users,
             final TransactionManager transactionManager,
             final JwtService jwtService,
-            final ClientSpanService spans) {
+            final ClientSpanService spans,
+            final PasswordHashingExecutor hashingExecutor,
+            final UserCache userCache,
+            final SecurityHandler securityHandler,
+            final TokenRevocationService revocations,
+            final LoginThrottler loginThrottler) {
         this.configuration = configuration;
         this.users = users;
         this.jwtService = jwtService;
         this.transactionManager = transactionManager;
         this.passwordEncoder = passwordEncoder;
         this.spans = spans;
+        this.hashingExecutor = hashingExecutor;
+        this.userCache = userCache;
+        this.securityHandler = securityHandler;
+        this.revocations = revocations;
+        this.loginThrottler = loginThrottler;
     }
 
     @JsonRpc(
@@ -88,11 +115,15 @@ public class SecurityEndpoints {
             if (!"refresh".equals(jwt.claim("type", String.class).orElse(""))) {
                 throw new JsonRpcException(400, "Invalid token type.");
             }
+            if (revocations.isRevoked(jwt.claim("jti", String.class).orElse(null))) {
+                throw new JsonRpcException(
+                        401, "invalid_token", new ErrorMessage("invalid_token", "Revoked token."), null);
+            }
 
             final var sub = jwt.claim("sub", String.class)
                     .orElseThrow(() -> new JsonRpcException(
                             401, "invalid_token", new ErrorMessage("invalid_token", "Invalid token."), null));
-            return newToken(request, findUser(request, sub, u -> true));
+            return newToken(request, findUser(request, sub));
         } catch (final JsonRpcException | HttpException e) {
             throw e;
         } catch (final RuntimeException re) {
@@ -104,24 +135,125 @@ public class SecurityEndpoints {
         }
     }
 
+    @JsonRpc(
+            value = "hcms.security.logout",
+            documentation =
+                    "Revokes the access token used to call this method and optionally the related refresh token.",
+            errors = {
+                @JsonRpcError(code = 400, documentation = "Invalid refresh token."),
+                @JsonRpcError(code = 401, documentation = "Invalid authentication."),
+                @JsonRpcError(code = 503, documentation = "Revocation is not available.")
+            })
+    public Revocation logout(
+            @JsonRpcParam(documentation = "Refresh token to revoke too.") final String refreshToken,
+            final Request request) {
+        final var jwt = securityHandler.authenticated(request);
+        final var sub = jwt.claim("sub", String.class).orElse(null);
+        int revoked = revokeToken(jwt);
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            final Jwt refresh;
+            try {
+                refresh = jwtService.verify(refreshToken);
+            } catch (final RuntimeException re) {
+                throw new JsonRpcException(400, "Invalid refresh token.", null, re);
+            }
+            if (sub == null || !sub.equals(refresh.claim("sub", String.class).orElse(null))) {
+                throw new JsonRpcException(400, "Refresh token does not belong to the authenticated user.");
+            }
+            revoked += revokeToken(refresh);
+        }
+        return new Revocation(revoked);
+    }
+
+    @JsonRpc(
+            value = "hcms.security.revoke",
+            documentation = "Revokes a token by its identifier (`jti` claim), requires the revocation admin role.",
+            errors = {
+                @JsonRpcError(code = 401, documentation = "Invalid authentication."),
+                @JsonRpcError(code = 403, documentation = "Missing admin role."),
+                @JsonRpcError(code = 503, documentation = "Revocation is not available.")
+            })
+    public Revocation revoke(
+            @JsonRpcParam(required = true, documentation = "Identifier of the token to revoke.") final String jti,
+            @JsonRpcParam(
+                            documentation =
+                                    "Expiration of the token (epoch seconds), if not set the longest token validity is used.")
+                    final Long expiresAt,
+            final Request request) {
+        final var roles = securityHandler
+                .authenticated(request)
+                .claim("roles", List.class)
+                .orElse(List.of());
+        if (!roles.contains(configuration.security().revocationAdminRole())) {
+            throw new JsonRpcException(403, "Forbidden");
+        }
+
+        revocations.revoke(
+                jti,
+                expiresAt != null
+                        ? TimeUnit.SECONDS.toMillis(expiresAt)
+                        : System.currentTimeMillis()
+                                + TimeUnit.SECONDS.toMillis(Math.max(
+                                        configuration.security().accessValidity(),
+                                        configuration.security().refreshValidity())));
+        return new Revocation(1);
+    }
+
     @JsonRpc(
             value = "hcms.security.login",
             documentation = "Logs in creating an access token.",
-            errors = @JsonRpcError(code = 400, documentation = "Invalid credentials."))
-    public PartialResponse<Token> login(
+            errors = {
+                @JsonRpcError(code = 400, documentation = "Invalid credentials."),
+                @JsonRpcError(code = 429, documentation = "Too many login attempts."),
+                @JsonRpcError(code = 503, documentation = "Too many concurrent logins.")
+            })
+    public CompletionStage<PartialResponse<Token>> login(
             @JsonRpcParam(required = true, documentation = "Username.") final String username,
             @JsonRpcParam(required = true, documentation = "Password.") final String password,
             final Request request) {
-        return newToken(
-                request,
-                findUser(
-                        request,
-                        username,
-                        u -> spans.wrap(
-                                request,
-                                "security.passwordMatches",
-                                Map.of(),
-                                () -> passwordEncoder.matches(password, u.passwordHash()))));
+        loginThrottler.onAttempt(request, username);
+
+        final var user = findUser(request, username);
+        final var passwordHash = user.user().passwordHash();
+        return hashingExecutor
+                .submit(() -> spans.wrap(request, "security.passwordMatches", Map.of(), () -> {
+                    if (!passwordEncoder.matches(password, passwordHash)) {
+                        return null;
+                    }
+                    return Optional.ofNullable(passwordEncoder.rehashIfNeeded(password, passwordHash));
+                }))
+                .thenApplyAsync(
+                        rehash -> {
+                            if (rehash == null) {
+                                throw invalidCredentials();
+                            }
+                            loginThrottler.onSuccess(username);
+                            rehash.ifPresent(newHash -> updatePasswordHash(request, user.user(), newHash));
+                            return newToken(request, user);
+                        },
+                        afterHashing);
+    }
+
+    private int revokeToken(final Jwt jwt) {
+        final var jti = jwt.claim("jti", String.class).orElse(null);
+        if (jti == null) {
+            return 0;
+        }
+        revocations.revoke(jti, jwtService.expiresAt(jwt));
+        return 1;
+    }
+
+    private void updatePasswordHash(final Request request, final User user, final String newHash) {
+        try {
+            if (!transactionManager.writeSQL(
+                    c -> users.updatePasswordHash(request, c, user.id(), user.passwordHash(), newHash))) {
+                logger.info(() -> "Password of '" + user.login() + "' changed concurrently, skipping rehashing");
+            }
+        } catch (final RuntimeException re) { // not blocking, it will be retried next time
+            logger.log(SEVERE, re, () -> "Can't rehash password of '" + user.login() + "': " + re.getMessage());
+        } finally {
+            userCache.invalidate(user.login());
+        }
     }
 
     private List<String> toRoles(final User user, final List<String> roles) {
@@ -152,19 +284,19 @@ public class SecurityEndpoints {
         });
     }
 
-    private UserRoles findUser(final Request request, final String username, final Predicate<User> validator) {
-        try {
-            return transactionManager.readSQL(c -> {
-                final var user = users.findByLogin(request, c, username)
-                        .filter(validator)
-                        .orElseThrow(this::invalidCredentials);
-                final var roles = users.findRoleByUserId(request, c, user.id());
-                return new UserRoles(user, toRoles(user, roles));
-            });
-        } catch (final RuntimeException iae) {
-            logger.log(SEVERE, iae, () -> "Can't load user '" + username + "': " + iae.getMessage());
-            throw invalidCredentials();
+    private UserRoles findUser(final Request request, final String username) {
+        var user = userCache.get(username);
+        if (user == null) {
+            try {
+                user = transactionManager.readSQL(c -> users.findWithRolesByLogin(request, c, username)
+                        .map(u -> new UserRoles(u.user(), toRoles(u.user(), u.roles()))));
+            } catch (final RuntimeException iae) {
+                logger.log(SEVERE, iae, () -> "Can't load user '" + username + "': " + iae.getMessage());
+                throw invalidCredentials();
+            }
+            userCache.put(username, user);
         }
+        return user.orElseThrow(this::invalidCredentials);
     }
 
     private JsonRpcException invalidCredentials() {
@@ -174,6 +306,4 @@ public class SecurityEndpoints {
                 new ErrorMessage("invalid_credentials", "Invalid username/password."),
                 null);
     }
-
-    private record UserRoles(User user, List<String> roles) {}
 }
@@ -99,6 +99,9 @@ public class ExtendedJsonRpcHandler extends JsonRpcHandler {
                             final var method =
                                     it.first().getOrDefault("method", "").toString();
                             return method.endsWith(".findById")
+                                    // conditional reads and relations are handled by the method itself
+                                    && !(it.first().get("params") instanceof Map<?, ?> params
+                                            && (params.containsKey("ifNoneMatch") || params.containsKey("include")))
                                     && modelHandler.hasEntity(
                                             method.substring(0, method.length() - ".findById".length()));
                         })
@@ -183,7 +186,13 @@ public class ExtendedJsonRpcHandler extends JsonRpcHandler {
     }
 
     private boolean isWriteMethod(final String method) {
-        return method.endsWith(".create") || method.endsWith(".update");
+        return method.endsWith(".create")
+                || method.endsWith(".update")
+                || method.endsWith(".patch")
+                || method.endsWith(".upsert")
+                || method.endsWith(".deleteByFilter")
+                || method.endsWith(".updateByFilter")
+                || method.endsWith(".deleteById");
     }
 
     @DefaultScoped
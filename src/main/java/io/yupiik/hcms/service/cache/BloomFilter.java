@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Collection;
+
+/**
+ * Immutable bloom filter for strings, it is built once from a snapshot and only read after.
+ * It is used to reject the common "not present" case before hitting a real set.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final int size;
+    private final int hashes;
+
+    /**
+     * @param values            values to index.
+     * @param falsePositiveRate expected false positive rate (ex: {@code 0.01}).
+     */
+    public BloomFilter(final Collection<String> values, final double falsePositiveRate) {
+        final int expected = Math.max(1, values.size());
+        final double ln2 = Math.log(2);
+        this.size = (int) Math.max(64, Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        this.hashes = Math.max(1, (int) Math.round((double) size / expected * ln2));
+        this.bits = new long[(size + 63) / 64];
+        for (final var value : values) {
+            add(value);
+        }
+    }
+
+    public boolean mightContain(final String value) {
+        final long hash = hash(value);
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            final int index = Math.floorMod(h1 + i * h2, size);
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(final String value) {
+        final long hash = hash(value);
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            final int index = Math.floorMod(h1 + i * h2, size);
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    // FNV-1a 64 bits + a final mix (murmur3 fmix64) to spread the bits, enough for a bloom filter
+    private long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : value.getBytes(UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
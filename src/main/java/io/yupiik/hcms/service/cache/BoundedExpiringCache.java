@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simple lock free cache where each entry has its own expiration date (epoch millis).
+ * When the max size is reached, expired entries are dropped and if it is not sufficient
+ * an arbitrary quarter of the entries is evicted - we don't need a real LRU there,
+ * just to ensure the memory stays bounded.
+ *
+ * @param <K> key type.
+ * @param <V> value type.
+ */
+public class BoundedExpiringCache<K, V> {
+    private final int maxSize;
+    private final Map<K, Entry<V>> entries;
+
+    /**
+     * @param maxSize max number of entries, if negative or zero the cache is disabled.
+     */
+    public BoundedExpiringCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = maxSize <= 0 ? Map.of() : new ConcurrentHashMap<>(Math.min(maxSize, 1_024));
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public V get(final K key) {
+        if (maxSize <= 0) {
+            return null;
+        }
+
+        final var entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public void put(final K key, final V value, final long expiresAt) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    public void remove(final K key) {
+        if (maxSize > 0) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        if (maxSize > 0) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(final long now) {
+        entries.values().removeIf(e -> e.expiresAt() <= now);
+        if (entries.size() < maxSize) {
+            return;
+        }
+
+        int toRemove = Math.max(1, maxSize / 4);
+        final var iterator = entries.keySet().iterator();
+        while (iterator.hasNext() && toRemove-- > 0) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {}
+}
@@ -40,8 +40,12 @@ public record Entity(
         NameMapping mapping,
         Model.EntityImplicitFiltering implicitFiltering,
         Function<Object, ValidationResult> validator,
+        boolean validateWithJsonSchema,
         String whereIds,
         SQLBiConsumer<ModelHandler.BindingContext, PreparedStatement> bindIdsNotNullable,
-        SQLBiConsumer<ModelHandler.BindingContext, PreparedStatement> bindIdsNullable) {
+        SQLBiConsumer<ModelHandler.BindingContext, PreparedStatement> bindIdsNullable,
+        String httpCacheControl,
+        Map<String, Model.Relation> relations,
+        Model.Aggregation aggregation) {
     public record NameMapping(Map<String, String> jsonToDatabase, Map<String, String> databaseToJson) {}
 }
@@ -27,6 +27,7 @@ import static io.yupiik.hcms.service.model.json.Model.JsonSchemaType.nullValue;
 import static io.yupiik.hcms.service.model.json.Model.JsonSchemaType.number;
 import static io.yupiik.hcms.service.model.json.Model.JsonSchemaType.object;
 import static io.yupiik.hcms.service.model.json.Model.JsonSchemaType.string;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Comparator.comparing;
 import static java.util.Locale.ROOT;
 import static java.util.Map.entry;
@@ -34,8 +35,10 @@ import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
 import io.yupiik.fusion.framework.handlebars.HandlebarsCompiler;
@@ -51,15 +54,19 @@ import io.yupiik.fusion.persistence.api.PersistenceException;
 import io.yupiik.fusion.persistence.api.SQLFunction;
 import io.yupiik.fusion.persistence.api.TransactionManager;
 import io.yupiik.hcms.configuration.HCMSConfiguration;
+import io.yupiik.hcms.service.cache.BoundedExpiringCache;
 import io.yupiik.hcms.service.model.json.Model;
 import io.yupiik.hcms.service.naming.NameMapper;
 import io.yupiik.hcms.service.persistence.DatabaseLoader;
 import io.yupiik.hcms.service.renderer.Renderer;
 import io.yupiik.hcms.service.security.SecurityHandler;
+import io.yupiik.hcms.service.security.UserCache;
 import io.yupiik.hcms.service.sql.SQLBiConsumer;
 import io.yupiik.hcms.service.sql.SQLConsumer;
 import io.yupiik.hcms.service.tracing.ClientSpanService;
 import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -70,6 +77,8 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -81,17 +90,25 @@ import java.util.Objects;
 import java.util.SequencedCollection;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 @ApplicationScoped
 public class ModelHandler {
+    private static final int MAX_INCLUDE_DEPTH = 3;
+    private static final int MAX_AGGREGATE_ROWS = 1_000;
+    private static final Set<String> AGGREGATE_FUNCTIONS = Set.of("count", "sum", "avg", "min", "max");
+
     private final Logger logger = Logger.getLogger(getClass().getName());
     private final Set<String> defaultWhereOperators =
             Set.of("=", "<", ">", ">=", "<=", "<>", "like", "ilike", "not like", "not ilike");
@@ -104,11 +121,17 @@ public class ModelHandler {
     private final JsonMapper jsonMapper;
     private final Map<String, Renderer> renderers;
     private final HCMSConfiguration configuration;
+    private final UserCache userCache;
 
     private final JsonSchemaValidatorFactory validatorFactory = new JsonSchemaValidatorFactory();
     private final ValidationResult validationOk = new ValidationResult(List.of());
 
     private volatile Map<String, Entity> entities;
+    private volatile Map<Model.EntitySpec, Entity> compiledEntities = Map.of();
+    private volatile Map<Model.JsonRpcMethod, CompiledMethod> compiledMethods = Map.of();
+    private volatile Map<String, HttpReadMethod> httpReadMethods = Map.of();
+    private volatile Map<String, Function<JsonRpcMethod.Context, CompletionStage<?>>> viewGuards = Map.of();
+    private volatile Boolean postgres;
 
     public ModelHandler(
             final HCMSConfiguration configuration,
@@ -118,8 +141,10 @@ public class ModelHandler {
             final SecurityHandler securityHandler,
             final ClientSpanService spans,
             final JsonMapper jsonMapper,
-            final List<Renderer> renderers) {
+            final List<Renderer> renderers,
+            final UserCache userCache) {
         this.transactionManager = transactionManager;
+        this.userCache = userCache;
         this.nameMapper = nameMapper;
         this.jsonMapper = jsonMapper;
         this.databaseLoader = databaseLoader;
@@ -143,68 +168,181 @@ public class ModelHandler {
     }
 
     public Stream<JsonRpcMethod> toJsonRpc(final Model model) {
+        return toJsonRpc(model, true);
+    }
+
+    /**
+     * @param model   the model to compile.
+     * @param migrate should the model SQL scripts be applied, commands only compiling the model must not touch
+     *                the database.
+     * @return the JSON-RPC methods of the model.
+     */
+    public Stream<JsonRpcMethod> toJsonRpc(final Model model, final boolean migrate) {
         if (model.jsonRpcMethods() == null || model.jsonRpcMethods().isEmpty()) {
             logger.info(() -> "No JSON-RPC method in the configuration");
             return Stream.empty();
         }
 
-        if (model.sql() != null && !model.sql().isEmpty()) {
-            logger.info(() -> "Executing scripts:\n" + String.join("\n", model.sql()));
-            databaseLoader.execute(model.sql(), configuration.databaseInit().ignoreErrors());
+        if (migrate && model.sql() != null && !model.sql().isEmpty()) {
+            databaseLoader.migrate(model.sql(), configuration.databaseInit().ignoreErrors());
         }
 
+        // on reload, reuse what was already compiled for unchanged specs
+        final var previousEntities = compiledEntities;
+        final var previousMethods = compiledMethods;
+        final var nextEntities = new HashMap<Model.EntitySpec, Entity>();
+        final var nextMethods = new HashMap<Model.JsonRpcMethod, CompiledMethod>();
+
         final var entities = ofNullable(model.entities()).orElse(List.of()).stream()
-                .peek(this::validateEntity)
-                .map(this::toEntity)
-                .peek(e -> logger.finest(() -> "Entity model: " + e))
-                .peek(e -> logger.info(() -> "Processed entity '" + e.name() + "'"))
+                .map(spec -> {
+                    final var existing = previousEntities.get(spec);
+                    if (existing != null) {
+                        logger.finest(() -> "Reusing entity '" + existing.name() + "'");
+                        nextEntities.put(spec, existing);
+                        return existing;
+                    }
+
+                    validateEntity(spec);
+                    final var entity = toEntity(spec);
+                    logger.finest(() -> "Entity model: " + entity);
+                    logger.info(() -> "Processed entity '" + entity.name() + "'");
+                    nextEntities.put(spec, entity);
+                    return entity;
+                })
                 .collect(toMap(Entity::name, identity(), (a, b) -> {
                     throw new IllegalArgumentException("Conflicting entities: '" + b + "'");
                 }));
+        validateRelations(entities);
         final var registrations = model.jsonRpcMethods().stream()
-                .flatMap(m -> toJsonRpcMethod(entities, m))
-                .peek(m -> logger.info(() -> "Registering JSON-RPC method '" + m.name() + "'"));
-
-        this.entities = entities; // save it after registration - in case it fails we want previous value
+                .flatMap(m -> toJsonRpcMethod(entities, m, previousMethods, nextMethods))
+                .peek(m -> logger.info(() -> "Registering JSON-RPC method '" + m.name() + "'"))
+                .toList();
 
-        return registrations;
+        // save it after registration - in case it fails we want previous value
+        this.entities = entities;
+        this.compiledEntities = nextEntities;
+        this.compiledMethods = nextMethods;
+        this.httpReadMethods = nextMethods.entrySet().stream()
+                .filter(e -> isHttpReadable(e.getKey(), e.getValue().entity()))
+                .collect(toMap(
+                        e -> e.getValue().method().name(),
+                        e -> new HttpReadMethod(e.getValue().method(), e.getValue().entity()),
+                        (a, b) -> a));
+        // an entity can only be included through a relation if it is readable,
+        // when findById and findAll don't have the same security both are required
+        this.viewGuards = nextMethods.keySet().stream()
+                .filter(m -> m.type() == FIND_BY_ID || m.type() == FIND_ALL)
+                .collect(toMap(
+                        Model.JsonRpcMethod::entityName,
+                        m -> securityHandler.compile(
+                                m.security() == null ? null : m.security().view(), c -> completedFuture(null)),
+                        (a, b) -> ctx -> {
+                            a.apply(ctx);
+                            return b.apply(ctx);
+                        }));
+
+        return registrations.stream();
     }
 
-    private Stream<JsonRpcMethod> toJsonRpcMethod(final Map<String, Entity> entities, final Model.JsonRpcMethod model) {
+    private Stream<JsonRpcMethod> toJsonRpcMethod(
+            final Map<String, Entity> entities,
+            final Model.JsonRpcMethod model,
+            final Map<Model.JsonRpcMethod, CompiledMethod> previous,
+            final Map<Model.JsonRpcMethod, CompiledMethod> next) {
         final var entity = entities.get(model.entityName());
         if (entity == null) {
             throw new IllegalArgumentException(
                     "Missing entity '" + model.entityName() + "' referenced by JSON-RPC method '" + model + "'");
         }
 
-        return switch (model.type() == null ? CRUD : model.type()) {
-            case CRUD -> Stream.of(FIND_BY_ID, FIND_ALL, DELETE_BY_ID, CREATE, UPDATE)
-                    .map(type ->
-                            new Model.JsonRpcMethod(type, model.entityName(), model.description(), model.security()))
-                    .flatMap(m -> toJsonRpcMethod(entities, m));
-            case FIND_BY_ID -> Stream.of(new ModelJsonRpcMethod(
+        final var type = model.type() == null ? CRUD : model.type();
+        if (type == CRUD) {
+            return Stream.of(FIND_BY_ID, FIND_ALL, DELETE_BY_ID, CREATE, UPDATE)
+                    .map(it -> new Model.JsonRpcMethod(
+                            it, model.entityName(), model.description(), model.security(), model.maxAffectedRows()))
+                    .flatMap(m -> toJsonRpcMethod(entities, m, previous, next));
+        }
+
+        // a method can only be reused if its entity was reused too since it captures it
+        final var existing = previous.get(model);
+        final var method = existing != null && existing.entity() == entity
+                ? existing.method()
+                : toJsonRpcMethod(entity, model, type);
+        next.put(model, new CompiledMethod(entity, method));
+        return Stream.of(method);
+    }
+
+    private JsonRpcMethod toJsonRpcMethod(
+            final Entity entity, final Model.JsonRpcMethod model, final Model.JsonRpcMethodType type) {
+        return switch (type) {
+            case CRUD -> throw new IllegalArgumentException("CRUD must be expanded");
+            case FIND_BY_ID -> new ModelJsonRpcMethod(
                     entity.name() + ".findById",
                     securityHandler.compile(
-                            model.security() == null ? null : model.security().view(), compileFindById(entity))));
-            case DELETE_BY_ID -> Stream.of(new ModelJsonRpcMethod(
+                            model.security() == null ? null : model.security().view(), compileFindById(entity)));
+            case DELETE_BY_ID -> new ModelJsonRpcMethod(
                     entity.name() + ".deleteById",
                     securityHandler.compile(
-                            model.security() == null ? null : model.security().delete(), compileDeleteById(entity))));
-            case FIND_ALL -> Stream.of(new ModelJsonRpcMethod(
+                            model.security() == null ? null : model.security().delete(), compileDeleteById(entity)));
+            case FIND_ALL -> new ModelJsonRpcMethod(
                     entity.name() + ".findAll",
                     securityHandler.compile(
-                            model.security() == null ? null : model.security().view(), compileFindAll(entity))));
-            case CREATE -> Stream.of(new ModelJsonRpcMethod(
+                            model.security() == null ? null : model.security().view(), compileFindAll(entity)));
+            case CREATE -> new ModelJsonRpcMethod(
                     entity.name() + ".create",
                     securityHandler.compile(
-                            model.security() == null ? null : model.security().create(), compileCreate(entity))));
-            case UPDATE -> Stream.of(new ModelJsonRpcMethod(
+                            model.security() == null ? null : model.security().create(), compileCreate(entity)));
+            case UPDATE -> new ModelJsonRpcMethod(
                     entity.name() + ".update",
                     securityHandler.compile(
-                            model.security() == null ? null : model.security().update(), compileUpdate(entity))));
+                            model.security() == null ? null : model.security().update(), compileUpdate(entity)));
+            case PATCH -> new ModelJsonRpcMethod(
+                    entity.name() + ".patch",
+                    securityHandler.compile(
+                            model.security() == null ? null : model.security().update(), compilePatch(entity)));
+            case UPSERT -> new ModelJsonRpcMethod(
+                    entity.name() + ".upsert",
+                    securityHandler.compile(
+                            model.security() == null ? null : model.security().create(),
+                            securityHandler.compile(
+                                    model.security() == null
+                                            ? null
+                                            : model.security().update(),
+                                    compileUpsert(entity))));
+            case DELETE_BY_FILTER -> new ModelJsonRpcMethod(
+                    entity.name() + ".deleteByFilter",
+                    securityHandler.compile(
+                            model.security() == null ? null : model.security().delete(),
+                            compileDeleteByFilter(entity, maxAffectedRows(model))));
+            case UPDATE_BY_FILTER -> new ModelJsonRpcMethod(
+                    entity.name() + ".updateByFilter",
+                    securityHandler.compile(
+                            model.security() == null ? null : model.security().update(),
+                            compileUpdateByFilter(entity, maxAffectedRows(model))));
+            case AGGREGATE -> new ModelJsonRpcMethod(
+                    entity.name() + ".aggregate",
+                    securityHandler.compile(
+                            model.security() == null ? null : model.security().view(), compileAggregate(entity)));
         };
     }
 
+    /**
+     * @param name the JSON-RPC method name.
+     * @return the method if it can be called with {@code GET} and cached by intermediaries, {@code null} otherwise.
+     */
+    public HttpReadMethod findHttpReadMethod(final String name) {
+        return httpReadMethods.get(name);
+    }
+
+    // only anonymous reads without implicit filtering since the result must be the same for everyone
+    private boolean isHttpReadable(final Model.JsonRpcMethod method, final Entity entity) {
+        return (method.type() == FIND_BY_ID || method.type() == FIND_ALL)
+                && (method.security() == null
+                        || method.security().view() == null
+                        || method.security().view().anonymous())
+                && (entity.implicitFiltering() == null || entity.implicitFiltering().view() == null);
+    }
+
     public boolean hasEntity(final String prefix) {
         return entities.containsKey(prefix);
     }
@@ -406,6 +544,7 @@ public class ModelHandler {
             String orderByClause = "";
             Map<String, Renderer> renderers = Map.of();
             List<String> fields = null;
+            Include include = null;
             if (ctx.params() instanceof List<?> list) {
                 if (!list.isEmpty()) {
                     page = ((Number) list.getFirst()).intValue();
@@ -458,6 +597,7 @@ public class ModelHandler {
                     final var casted = (List<String>) f;
                     fields = casted;
                 }
+                include = toInclude(map.get("include"));
             } else {
                 final var message = "Invalid request: " + ctx.params();
                 logger.severe(message);
@@ -488,23 +628,32 @@ public class ModelHandler {
             final int pageSizeValue = Math.max(0, Math.min(50, pageSize));
             final var whereRef = whereClause;
             final var renderersRef = renderers;
+            final var includeRef = include;
 
             final var result = executeInTx(
                     ctx.request(),
                     spanName,
                     Map.of("sql.find", sql, "sql.count", countAllSql),
                     transactionManager::readSQL,
-                    connection -> doFindAll(
-                            names,
-                            connection,
-                            sql,
-                            countAllSql,
-                            whereRef,
-                            implicitWhere,
-                            pageValue,
-                            pageSizeValue,
-                            ctx,
-                            renderersRef));
+                    connection -> {
+                        final var found = doFindAll(
+                                names,
+                                connection,
+                                sql,
+                                countAllSql,
+                                whereRef,
+                                implicitWhere,
+                                pageValue,
+                                pageSizeValue,
+                                ctx,
+                                renderersRef);
+                        if (includeRef != null) {
+                            @SuppressWarnings("unchecked")
+                            final var items = (List<Map<String, Object>>) found.get("items");
+                            loadIncludes(ctx, connection, entity, items, includeRef);
+                        }
+                        return found;
+                    });
             return completedFuture(result);
         };
     }
@@ -593,39 +742,917 @@ public class ModelHandler {
         bindingNames.removeAll(idDbNames);
         bindingNames.addAll(idDbNames);
 
+        // values are bound in bindingNames order (identifiers last)
+        final int revisionIndex =
+                entity.revisionProperty() != null ? bindingNames.indexOf(entity.revisionProperty()) : -1;
+        final var revisionSchema = entity.revisionProperty() != null
+                ? entity.schema().properties().get(entity.revisionProperty())
+                : null;
         final Function<List<Object>, List<Object>> forcedRevision = entity.revisionProperty() != null
-                ? revisionValueProvider(
-                        jsonPropertiesName.indexOf(entity.revisionProperty()),
-                        entity.schema().properties().get(entity.revisionProperty()))
+                ? revisionValueProvider(revisionIndex, revisionSchema)
                 : identity();
 
         final var binder =
                 mergeBinders(createBinder(entity.name(), entity.schema(), bindingNames, true), implicitWhere);
 
+        // optimistic locking: the row is only updated if its revision is still the one the client read
+        final var conditionalUpdateSql = entity.revisionProperty() != null
+                ? updateSql + " AND "
+                        + entity.mapping()
+                                .jsonToDatabase()
+                                .getOrDefault(entity.revisionProperty(), entity.revisionProperty())
+                        + " = ?"
+                : null;
+        final int expectedRevisionIndex = updatedColumns.size()
+                + entity.identifiers().size()
+                + (implicitWhere != null ? implicitWhere.binders().size() : 0)
+                + 1;
+
         final var spanName = entity.name() + ".update";
         final var spanTags = Map.<String, Object>of("sql", updateSql);
+        final var conditionalSpanTags =
+                conditionalUpdateSql != null ? Map.<String, Object>of("sql", conditionalUpdateSql) : spanTags;
+        final var onWrite = onWrite(entity);
 
         return ctx -> {
             doValidate(entity.validator(), ctx);
 
-            final var values = forcedRevision.apply(
+            final var rawExpectedRevision =
+                    ctx.params() instanceof Map<?, ?> map ? map.get("expectedRevision") : null;
+            if (rawExpectedRevision != null && conditionalUpdateSql == null) {
+                throw new JsonRpcException(
+                        400, "Entity '" + entity.name() + "' has no revision, expectedRevision is not supported");
+            }
+            final var expectedRevision =
+                    rawExpectedRevision != null ? toRevisionValue(revisionSchema, rawExpectedRevision) : null;
+
+            final var forcedValues = forcedRevision.apply(
                     virtualFieldsSetters.apply(ctx, findValuesFromParams(ctx.params(), bindingNames, true)));
+            final var values = expectedRevision != null
+                    ? ensureRevisionAfter(forcedValues, revisionIndex, expectedRevision)
+                    : forcedValues;
             final var ids = values.subList(values.size() - entity.identifiers().size(), values.size());
             if (ids.stream().anyMatch(Objects::isNull)) {
                 throw new JsonRpcException(400, "Invalid identifier, ensure to set it");
             }
 
             final var result = requestToResult(bindingNames, values.iterator());
-            executeInTx(
+            if (expectedRevision == null) {
+                executeInTx(
+                        ctx.request(),
+                        spanName,
+                        spanTags,
+                        transactionManager::writeSQL,
+                        connection -> doUpdate(entity, connection, updateSql, binder, values, result, ids, ctx));
+            } else {
+                final SQLBiConsumer<BindingContext, PreparedStatement> conditionalBinder = (c, stmt) -> {
+                    binder.accept(c, stmt);
+                    stmt.setObject(expectedRevisionIndex, expectedRevision);
+                };
+                executeInTx(
+                        ctx.request(),
+                        spanName,
+                        conditionalSpanTags,
+                        transactionManager::writeSQL,
+                        connection -> doConditionalUpdate(
+                                entity,
+                                connection,
+                                conditionalUpdateSql,
+                                conditionalBinder,
+                                values,
+                                rawExpectedRevision,
+                                ids,
+                                ctx));
+            }
+            onWrite.run();
+            return completedFuture(result);
+        };
+    }
+
+    private Object doConditionalUpdate(
+            final Entity entity,
+            final Connection connection,
+            final String updateSql,
+            final SQLBiConsumer<BindingContext, PreparedStatement> bindAll,
+            final List<Object> values,
+            final Object expectedRevision,
+            final List<Object> ids,
+            final JsonRpcMethod.Context context) {
+        try (final var stmt = connection.prepareStatement(updateSql)) {
+            bindAll.accept(new BindingContext(context, values), stmt);
+            if (stmt.executeUpdate() == 0) { // missing or concurrently updated, both mean the client view is stale
+                throw new JsonRpcException(
+                        409,
+                        "Entity revision conflict",
+                        Map.of("id", ids.size() == 1 ? ids.getFirst() : ids, "expectedRevision", expectedRevision),
+                        null);
+            }
+        } catch (final SQLException ex) {
+            throw new JsonRpcException(500, "Can't update entity " + entity.name() + ' ' + ids, null, ex);
+        }
+        return null;
+    }
+
+    private Function<JsonRpcMethod.Context, CompletionStage<?>> compilePatch(final Entity entity) {
+        final var idDbNames = entity.identifiers().stream()
+                .map(id -> entity.mapping().jsonToDatabase().get(id))
+                .toList();
+        final Map<String, Model.GenerationType> virtualFields =
+                entity.updateVirtualFields() == null ? Map.of() : entity.updateVirtualFields();
+        final var revisionColumn = entity.revisionProperty() != null
+                ? entity.mapping().jsonToDatabase().getOrDefault(entity.revisionProperty(), entity.revisionProperty())
+                : null;
+        // managed columns are always written, others only when present in the request
+        final var managedColumns = entity.mapping().databaseToJson().keySet().stream()
+                .filter(it -> virtualFields.containsKey(it) || Objects.equals(entity.revisionProperty(), it))
+                .toList();
+        final var patchableColumns = entity.mapping().databaseToJson().keySet().stream()
+                .filter(Predicate.not(idDbNames::contains))
+                .filter(Predicate.not(managedColumns::contains))
+                .toList();
+        final var revisionSchema = entity.revisionProperty() != null
+                ? entity.schema().properties().get(entity.revisionProperty())
+                : null;
+
+        // one statement per set of patched columns, bounded since keys come from the client
+        final var statements = new ConcurrentHashMap<List<String>, PatchStatement>();
+        final Function<List<String>, PatchStatement> statementFactory = columns -> {
+            final var bindingNames = new ArrayList<String>(columns.size() + managedColumns.size() + idDbNames.size());
+            bindingNames.addAll(columns);
+            bindingNames.addAll(managedColumns);
+            final var setColumns = List.copyOf(bindingNames);
+            bindingNames.addAll(idDbNames);
+
+            final var implicitWhere = entity.implicitFiltering() == null
+                    ? null
+                    : prepareImplicitWhere(entity.implicitFiltering().update(), bindingNames.size() + 1);
+            final var sql = setColumns.stream()
+                    .map(name -> name + " = ?")
+                    .collect(joining(
+                            ", ",
+                            "update " + entity.table() + " set ",
+                            " where "
+                                    + '(' + entity.whereIds() + ")"
+                                    + (implicitWhere != null ? (" AND (" + implicitWhere.sql() + ')') : "")));
+            final int revisionIndex = revisionColumn != null ? bindingNames.indexOf(entity.revisionProperty()) : -1;
+            final var virtualFieldsSetters = setVirtualFields(bindingNames, entity.updateVirtualFields());
+            final Function<List<Object>, List<Object>> forcedRevision = revisionColumn != null
+                    ? revisionValueProvider(revisionIndex, revisionSchema)
+                    : identity();
+            final var patchedProperties = new HashSet<>(bindingNames);
+            return new PatchStatement(
+                    sql,
+                    revisionColumn != null ? sql + " AND " + revisionColumn + " = ?" : null,
+                    bindingNames.size() + (implicitWhere != null ? implicitWhere.binders().size() : 0) + 1,
+                    bindingNames,
+                    mergeBinders(createBinder(entity.name(), entity.schema(), bindingNames, true), implicitWhere),
+                    (ctx, values) -> forcedRevision.apply(virtualFieldsSetters.apply(ctx, values)),
+                    revisionIndex,
+                    entity.validateWithJsonSchema()
+                            ? new LazyValidator(() -> validatorFactory.newInstance(
+                                    asGenericObject(subSchema(entity.schema(), patchedProperties))))
+                            : o -> validationOk);
+        };
+
+        final var spanName = entity.name() + ".patch";
+        final var onWrite = onWrite(entity);
+
+        return ctx -> {
+            if (!(ctx.params() instanceof Map<?, ?> params)) {
+                throw new JsonRpcException(400, "Invalid request, patch must use named parameters");
+            }
+
+            final var columns =
+                    patchableColumns.stream().filter(params::containsKey).toList();
+            if (columns.isEmpty() && managedColumns.isEmpty()) {
+                throw new JsonRpcException(400, "Invalid request, no attribute to patch: " + patchableColumns);
+            }
+            final var statement = statements.size() < 256
+                    ? statements.computeIfAbsent(columns, statementFactory)
+                    : ofNullable(statements.get(columns)).orElseGet(() -> statementFactory.apply(columns));
+
+            doValidate(statement.validator(), ctx);
+
+            final var rawExpectedRevision = params.get("expectedRevision");
+            if (rawExpectedRevision != null && statement.conditionalSql() == null) {
+                throw new JsonRpcException(
+                        400, "Entity '" + entity.name() + "' has no revision, expectedRevision is not supported");
+            }
+            final var expectedRevision =
+                    rawExpectedRevision != null ? toRevisionValue(revisionSchema, rawExpectedRevision) : null;
+
+            final var forcedValues = statement
+                    .managedValues()
+                    .apply(ctx, findValuesFromParams(params, statement.bindingNames(), true));
+            final var values = expectedRevision != null
+                    ? ensureRevisionAfter(forcedValues, statement.revisionIndex(), expectedRevision)
+                    : forcedValues;
+            final var ids = values.subList(values.size() - entity.identifiers().size(), values.size());
+            if (ids.stream().anyMatch(Objects::isNull)) {
+                throw new JsonRpcException(400, "Invalid identifier, ensure to set it");
+            }
+
+            final var result = requestToResult(statement.bindingNames(), values.iterator());
+            if (expectedRevision == null) {
+                executeInTx(
+                        ctx.request(),
+                        spanName,
+                        Map.of("sql", statement.sql()),
+                        transactionManager::writeSQL,
+                        connection -> doPatch(
+                                entity, connection, statement.sql(), statement.binder(), values, result, ids, ctx));
+            } else {
+                final SQLBiConsumer<BindingContext, PreparedStatement> conditionalBinder = (c, stmt) -> {
+                    statement.binder().accept(c, stmt);
+                    stmt.setObject(statement.expectedRevisionIndex(), expectedRevision);
+                };
+                executeInTx(
+                        ctx.request(),
+                        spanName,
+                        Map.of("sql", statement.conditionalSql()),
+                        transactionManager::writeSQL,
+                        connection -> doConditionalUpdate(
+                                entity,
+                                connection,
+                                statement.conditionalSql(),
+                                conditionalBinder,
+                                values,
+                                rawExpectedRevision,
+                                ids,
+                                ctx));
+            }
+            onWrite.run();
+            return completedFuture(result);
+        };
+    }
+
+    private Object doPatch(
+            final Entity entity,
+            final Connection connection,
+            final String patchSql,
+            final SQLBiConsumer<BindingContext, PreparedStatement> bindAll,
+            final List<Object> values,
+            final Map<String, Object> result,
+            final List<Object> ids,
+            final JsonRpcMethod.Context context) {
+        try (final var stmt = connection.prepareStatement(patchSql)) {
+            bindAll.accept(new BindingContext(context, values), stmt);
+            if (stmt.executeUpdate() == 0) {
+                throw new JsonRpcException(
+                        404,
+                        "Can't patch entity with id=" + ids,
+                        Map.of("id", ids.size() == 1 ? ids.getFirst() : ids),
+                        null);
+            }
+        } catch (final SQLException ex) {
+            throw new JsonRpcException(500, "Can't patch entity " + entity.name() + ' ' + ids, null, ex);
+        }
+        return null;
+    }
+
+    // validates only the provided attributes (required ones are only checked if patched)
+    private Model.JsonSchema subSchema(final Model.JsonSchema schema, final Set<String> properties) {
+        return new Model.JsonSchema(
+                schema.type(),
+                schema.properties().entrySet().stream()
+                        .filter(e -> properties.contains(e.getKey()))
+                        .collect(toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, TreeMap::new)),
+                null,
+                schema.required() == null
+                        ? null
+                        : schema.required().stream().filter(properties::contains).toList(),
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null);
+    }
+
+    private Function<JsonRpcMethod.Context, CompletionStage<?>> compileUpsert(final Entity entity) {
+        final var jsonPropertiesName =
+                new ArrayList<>(entity.mapping().databaseToJson().keySet());
+        final var idDbNames = entity.identifiers().stream()
+                .map(id -> entity.mapping().jsonToDatabase().get(id))
+                .toList();
+        // generated create fields are not rewritten when the entity already exists
+        final var createOnlyFields = entity.createVirtualFields() == null
+                ? Set.<String>of()
+                : entity.createVirtualFields().keySet().stream()
+                        .filter(it -> entity.updateVirtualFields() == null
+                                || !entity.updateVirtualFields().containsKey(it))
+                        .collect(toSet());
+        final var updatedColumns = jsonPropertiesName.stream()
+                .filter(Predicate.not(idDbNames::contains))
+                .filter(Predicate.not(createOnlyFields::contains))
+                .toList();
+        // when the row already exists the generated create values are not the stored ones so don't return them
+        final var createOnlyResultFields = createOnlyFields.stream()
+                .filter(Predicate.not(idDbNames::contains))
+                .toList();
+        final var existsSql = createOnlyResultFields.isEmpty()
+                ? null
+                : "select 1 from " + entity.table() + " where " + entity.whereIds();
+        final var existsBinder = createBinder(entity.name(), entity.schema(), idDbNames, false);
+        final var implicitWhere = entity.implicitFiltering() == null
+                ? null
+                : prepareImplicitWhere(entity.implicitFiltering().update(), jsonPropertiesName.size() + 1);
+        final var mergeImplicitWhere = entity.implicitFiltering() == null
+                ? null
+                : prepareImplicitWhere(entity.implicitFiltering().update(), idDbNames.size() + 1);
+
+        final var postgresSql = jsonPropertiesName.stream()
+                        .collect(joining(", ", "insert into " + entity.table() + " (", ")"))
+                + jsonPropertiesName.stream().map(i -> "?").collect(joining(", ", " values (", ")"))
+                + idDbNames.stream().collect(joining(", ", " on conflict (", ")"))
+                + (updatedColumns.isEmpty()
+                        ? " do nothing"
+                        : (updatedColumns.stream()
+                                        .map(c -> c + " = excluded." + c)
+                                        .collect(joining(", ", " do update set ", ""))
+                                + (implicitWhere != null ? (" where (" + implicitWhere.sql() + ')') : "")));
+        // parameters are only used where their type is known (untyped "using (values (?, ?))" fails on H2)
+        final var mergeSql = "merge into " + entity.table() + " using (select 1 as hcms_one) hcms_source"
+                + idDbNames.stream().map(id -> id + " = ?").collect(joining(" and ", " on (", ")"))
+                + (updatedColumns.isEmpty()
+                        ? ""
+                        : (" when matched"
+                                + (mergeImplicitWhere != null ? (" and (" + mergeImplicitWhere.sql() + ')') : "")
+                                + updatedColumns.stream()
+                                        .map(c -> c + " = ?")
+                                        .collect(joining(", ", " then update set ", ""))))
+                + jsonPropertiesName.stream().collect(joining(", ", " when not matched then insert (", ")"))
+                + jsonPropertiesName.stream().map(i -> "?").collect(joining(", ", " values (", ")"));
+        // merge binding order: on (ids), implicit clause (bound separately), update set, insert values
+        final var mergeBindingNames = new ArrayList<String>();
+        mergeBindingNames.addAll(idDbNames);
+        if (!updatedColumns.isEmpty()) {
+            for (int i = 0; i < (mergeImplicitWhere != null ? mergeImplicitWhere.binders().size() : 0); i++) {
+                mergeBindingNames.add(null);
+            }
+            mergeBindingNames.addAll(updatedColumns);
+        }
+        mergeBindingNames.addAll(jsonPropertiesName);
+        final var mergeValueIndices = mergeBindingNames.stream()
+                .mapToInt(it -> it == null ? -1 : jsonPropertiesName.indexOf(it))
+                .toArray();
+        final var mergeValueBinders = new ArrayList<SQLBiConsumer<BindingContext, PreparedStatement>>();
+        for (int i = 0; i < mergeBindingNames.size(); i++) {
+            if (mergeBindingNames.get(i) != null) {
+                mergeValueBinders.add(toBinder(entity.name(), entity.schema(), mergeBindingNames.get(i), i, true));
+            }
+        }
+
+        final var postgresBinder =
+                mergeBinders(createBinder(entity.name(), entity.schema(), jsonPropertiesName, true), implicitWhere);
+        final var mergeBinder = mergeBinders(
+                flattenBinders(mergeValueBinders), updatedColumns.isEmpty() ? null : mergeImplicitWhere);
+        final var createVirtualFieldsSetters = setVirtualFields(jsonPropertiesName, entity.createVirtualFields());
+        final var updateVirtualFieldsSetters = setVirtualFields(jsonPropertiesName, entity.updateVirtualFields());
+        final var identifierIndices =
+                idDbNames.stream().mapToInt(jsonPropertiesName::indexOf).toArray();
+        final Function<List<Object>, List<Object>> forcedRevision = entity.revisionProperty() != null
+                ? revisionValueProvider(
+                        jsonPropertiesName.indexOf(entity.revisionProperty()),
+                        entity.schema().properties().get(entity.revisionProperty()))
+                : identity();
+
+        final var spanName = entity.name() + ".upsert";
+        final var onWrite = onWrite(entity);
+
+        return ctx -> {
+            doValidate(entity.validator(), ctx);
+
+            final var provided = findValuesFromParams(ctx.params(), jsonPropertiesName, true);
+            // identifiers are only generated when the client did not send them, else we could never update
+            final var created = new ArrayList<>(createVirtualFieldsSetters.apply(ctx, provided));
+            for (final int index : identifierIndices) {
+                if (provided.get(index) != null) {
+                    created.set(index, provided.get(index));
+                }
+            }
+            final var values = forcedRevision.apply(updateVirtualFieldsSetters.apply(ctx, created));
+            final var ids = Arrays.stream(identifierIndices).mapToObj(values::get).toList();
+            if (ids.stream().anyMatch(Objects::isNull)) {
+                throw new JsonRpcException(400, "Invalid identifier, ensure to set it");
+            }
+
+            final var result = requestToResult(jsonPropertiesName, values.iterator());
+            final var knownPostgres = postgres;
+            final boolean existed = executeInTx(
                     ctx.request(),
                     spanName,
-                    spanTags,
+                    Map.of("sql", knownPostgres != null && knownPostgres ? postgresSql : mergeSql),
                     transactionManager::writeSQL,
-                    connection -> doUpdate(entity, connection, updateSql, binder, values, result, ids, ctx));
+                    connection -> {
+                        final var exists = existsSql != null
+                                && doExists(entity, connection, existsSql, existsBinder, ids, ctx);
+                        if (isPostgres(connection)) {
+                            doUpsert(
+                                    entity,
+                                    connection,
+                                    postgresSql,
+                                    postgresBinder,
+                                    values,
+                                    ids,
+                                    !updatedColumns.isEmpty(),
+                                    ctx);
+                        } else {
+                            doUpsert(
+                                    entity,
+                                    connection,
+                                    mergeSql,
+                                    mergeBinder,
+                                    Arrays.stream(mergeValueIndices)
+                                            .mapToObj(i -> i < 0 ? null : values.get(i))
+                                            .toList(),
+                                    ids,
+                                    !updatedColumns.isEmpty(),
+                                    ctx);
+                        }
+                        return exists;
+                    });
+            if (existed) {
+                createOnlyResultFields.forEach(result::remove);
+            }
+            onWrite.run();
             return completedFuture(result);
         };
     }
 
+    private Object doUpsert(
+            final Entity entity,
+            final Connection connection,
+            final String upsertSql,
+            final SQLBiConsumer<BindingContext, PreparedStatement> bindAll,
+            final List<Object> values,
+            final List<Object> ids,
+            final boolean updatable,
+            final JsonRpcMethod.Context context) {
+        try (final var stmt = connection.prepareStatement(upsertSql)) {
+            bindAll.accept(new BindingContext(context, values), stmt);
+            if (stmt.executeUpdate() == 0 && updatable) { // existing row filtered by the implicit update clause
+                throw new JsonRpcException(
+                        404,
+                        "Can't upsert entity with id=" + ids,
+                        Map.of("id", ids.size() == 1 ? ids.getFirst() : ids),
+                        null);
+            }
+        } catch (final SQLException ex) {
+            throw new JsonRpcException(500, "Can't upsert entity " + entity.name() + ' ' + ids, null, ex);
+        }
+        return null;
+    }
+
+    private boolean doExists(
+            final Entity entity,
+            final Connection connection,
+            final String existsSql,
+            final SQLBiConsumer<BindingContext, PreparedStatement> bindIds,
+            final List<Object> ids,
+            final JsonRpcMethod.Context context) {
+        try (final var stmt = connection.prepareStatement(existsSql)) {
+            bindIds.accept(new BindingContext(context, ids), stmt);
+            try (final var rset = stmt.executeQuery()) {
+                return rset.next();
+            }
+        } catch (final SQLException ex) {
+            throw new JsonRpcException(500, "Can't upsert entity " + entity.name() + ' ' + ids, null, ex);
+        }
+    }
+
+    // the database does not change at runtime so the first connection is enough to know the dialect
+    private boolean isPostgres(final Connection connection) {
+        var value = postgres;
+        if (value == null) {
+            try {
+                value = connection.getMetaData().getDatabaseProductName().toLowerCase(ROOT).contains("postgres");
+            } catch (final SQLException e) {
+                logger.warning(() -> "Can't detect database type, using MERGE statements: " + e.getMessage());
+                value = false;
+            }
+            postgres = value;
+        }
+        return value;
+    }
+
+    private int maxAffectedRows(final Model.JsonRpcMethod model) {
+        return model.maxAffectedRows() == null ? 1_000 : model.maxAffectedRows();
+    }
+
+    private Function<JsonRpcMethod.Context, CompletionStage<?>> compileDeleteByFilter(
+            final Entity entity, final int maxAffectedRows) {
+        final var implicitWhere = entity.implicitFiltering() == null
+                ? null
+                : prepareImplicitWhere(entity.implicitFiltering().delete(), 1);
+        final var filterableKeys = filterableKeys(entity);
+        final var wherePrefix = "where" + (implicitWhere != null ? " (" + implicitWhere.sql() + ") AND " : "");
+        final var whereStartIndex = (implicitWhere == null ? 0 : implicitWhere.binders().size()) + 1;
+
+        final var spanName = entity.name() + ".deleteByFilter";
+        final var onWrite = onWrite(entity);
+
+        return ctx -> {
+            final var where = toWhereClause(
+                    requireFilters(ctx, filterableKeys),
+                    filterableKeys,
+                    entity.allowedWhereOperators(),
+                    whereStartIndex,
+                    wherePrefix);
+            final var binder = mergeBinders(flattenBinders(where.binders()), implicitWhere);
+            final var countSql = "select count(*) from " + entity.table() + where.sql();
+            final var deleteSql = "delete from " + entity.table() + where.sql();
+
+            final var affected = executeInTx(
+                    ctx.request(),
+                    spanName,
+                    Map.of("sql.count", countSql, "sql.delete", deleteSql),
+                    transactionManager::writeSQL,
+                    connection -> doWriteByFilter(
+                            connection, countSql, binder, deleteSql, binder, List.of(), maxAffectedRows, ctx));
+            onWrite.run();
+            return completedFuture(Map.of("affected", affected));
+        };
+    }
+
+    private Function<JsonRpcMethod.Context, CompletionStage<?>> compileUpdateByFilter(
+            final Entity entity, final int maxAffectedRows) {
+        final var idDbNames = entity.identifiers().stream()
+                .map(id -> entity.mapping().jsonToDatabase().get(id))
+                .toList();
+        final Map<String, Model.GenerationType> virtualFields =
+                entity.updateVirtualFields() == null ? Map.of() : entity.updateVirtualFields();
+        final var managedColumns = entity.mapping().databaseToJson().keySet().stream()
+                .filter(it -> virtualFields.containsKey(it) || Objects.equals(entity.revisionProperty(), it))
+                .toList();
+        final var updatableColumns = entity.mapping().databaseToJson().keySet().stream()
+                .filter(Predicate.not(idDbNames::contains))
+                .filter(Predicate.not(managedColumns::contains))
+                .collect(toSet());
+        final var filterableKeys = filterableKeys(entity);
+
+        // the count statement binds the implicit clause first, the update binds the SET values first
+        final var countImplicitWhere = entity.implicitFiltering() == null
+                ? null
+                : prepareImplicitWhere(entity.implicitFiltering().update(), 1);
+        final var countWherePrefix =
+                "where" + (countImplicitWhere != null ? " (" + countImplicitWhere.sql() + ") AND " : "");
+        final var countWhereStartIndex = (countImplicitWhere == null ? 0 : countImplicitWhere.binders().size()) + 1;
+
+        // one SET clause per set of updated columns, bounded since keys come from the client
+        final var statements = new ConcurrentHashMap<List<String>, UpdateByFilterStatement>();
+        final Function<List<String>, UpdateByFilterStatement> statementFactory = columns -> {
+            final var bindingNames = new ArrayList<String>(columns.size() + managedColumns.size());
+            bindingNames.addAll(columns);
+            bindingNames.addAll(managedColumns);
+            final var implicitWhere = entity.implicitFiltering() == null
+                    ? null
+                    : prepareImplicitWhere(entity.implicitFiltering().update(), bindingNames.size() + 1);
+            final var virtualFieldsSetters = setVirtualFields(bindingNames, entity.updateVirtualFields());
+            final Function<List<Object>, List<Object>> forcedRevision = entity.revisionProperty() != null
+                    ? revisionValueProvider(
+                            bindingNames.indexOf(entity.revisionProperty()),
+                            entity.schema().properties().get(entity.revisionProperty()))
+                    : identity();
+            final var updatedProperties = Set.copyOf(columns);
+            return new UpdateByFilterStatement(
+                    bindingNames.stream()
+                            .map(name -> name + " = ?")
+                            .collect(joining(", ", "update " + entity.table() + " set ", "")),
+                    bindingNames,
+                    mergeBinders(createBinder(entity.name(), entity.schema(), bindingNames, true), implicitWhere),
+                    (ctx, values) -> forcedRevision.apply(virtualFieldsSetters.apply(ctx, values)),
+                    "where" + (implicitWhere != null ? " (" + implicitWhere.sql() + ") AND " : ""),
+                    bindingNames.size() + (implicitWhere == null ? 0 : implicitWhere.binders().size()) + 1,
+                    entity.validateWithJsonSchema()
+                            ? new LazyValidator(() -> validatorFactory.newInstance(
+                                    asGenericObject(subSchema(entity.schema(), updatedProperties))))
+                            : o -> validationOk);
+        };
+
+        final var spanName = entity.name() + ".updateByFilter";
+        final var onWrite = onWrite(entity);
+
+        return ctx -> {
+            final var filters = requireFilters(ctx, filterableKeys);
+            if (!(((Map<?, ?>) ctx.params()).get("values") instanceof Map<?, ?> valuesParam) || valuesParam.isEmpty()) {
+                throw new JsonRpcException(400, "Invalid request, missing values to set");
+            }
+            final var invalidKeys = valuesParam.keySet().stream()
+                    .map(String::valueOf)
+                    .filter(Predicate.not(updatableColumns::contains))
+                    .toList();
+            if (!invalidKeys.isEmpty()) {
+                throw new JsonRpcException(400, "Invalid request, can't update " + invalidKeys);
+            }
+
+            final var columns = entity.mapping().databaseToJson().keySet().stream()
+                    .filter(valuesParam::containsKey)
+                    .toList();
+            final var statement = statements.size() < 256
+                    ? statements.computeIfAbsent(columns, statementFactory)
+                    : ofNullable(statements.get(columns)).orElseGet(() -> statementFactory.apply(columns));
+
+            validate(statement.validator(), valuesParam);
+
+            final var values = statement
+                    .managedValues()
+                    .apply(ctx, findValuesFromParams(valuesParam, statement.bindingNames(), true));
+
+            final var where = toWhereClause(
+                    filters,
+                    filterableKeys,
+                    entity.allowedWhereOperators(),
+                    statement.whereStartIndex(),
+                    statement.wherePrefix());
+            final var countWhere = toWhereClause(
+                    filters, filterableKeys, entity.allowedWhereOperators(), countWhereStartIndex, countWherePrefix);
+            final var countSql = "select count(*) from " + entity.table() + countWhere.sql();
+            final var updateSql = statement.sql() + where.sql();
+
+            final var affected = executeInTx(
+                    ctx.request(),
+                    spanName,
+                    Map.of("sql.count", countSql, "sql.update", updateSql),
+                    transactionManager::writeSQL,
+                    connection -> doWriteByFilter(
+                            connection,
+                            countSql,
+                            mergeBinders(flattenBinders(countWhere.binders()), countImplicitWhere),
+                            updateSql,
+                            statement.binder().andThen(flattenBinders(where.binders())),
+                            values,
+                            maxAffectedRows,
+                            ctx));
+            onWrite.run();
+            return completedFuture(Map.of("affected", affected));
+        };
+    }
+
+    // set based writes must be explicit so at least one filter is required and unknown keys are not ignored
+    private Map<?, ?> requireFilters(final JsonRpcMethod.Context ctx, final Map<String, String> filterableKeys) {
+        if (!(ctx.params() instanceof Map<?, ?> params)
+                || !(params.get("filters") instanceof Map<?, ?> filters)
+                || filters.isEmpty()) {
+            throw new JsonRpcException(400, "Invalid request, at least one filter is required");
+        }
+        final var invalidKeys = filters.keySet().stream()
+                .map(String::valueOf)
+                .filter(Predicate.not(filterableKeys::containsKey))
+                .toList();
+        if (!invalidKeys.isEmpty()) {
+            throw new JsonRpcException(400, "Invalid request, can't filter on " + invalidKeys);
+        }
+        return filters;
+    }
+
+    private Map<String, String> filterableKeys(final Entity entity) {
+        return entity.allowedFilterKeys().stream()
+                .collect(toMap(
+                        identity(),
+                        k -> requireNonNull(
+                                entity.mapping().jsonToDatabase().get(k), () -> "Invalid filterable key '" + k + "'")));
+    }
+
+    private Function<JsonRpcMethod.Context, CompletionStage<?>> compileAggregate(final Entity entity) {
+        final var aggregation = entity.aggregation();
+        if (aggregation == null) {
+            throw new IllegalArgumentException("No aggregation configured for entity '" + entity.name() + "'");
+        }
+        final var groupByKeys = aggregationKeys(entity, aggregation.allowedGroupByKeys());
+        final var aggregatedKeys = aggregationKeys(entity, aggregation.allowedAggregatedKeys());
+        final var functions = aggregation.allowedFunctions() == null
+                ? Set.of("count")
+                : Set.copyOf(aggregation.allowedFunctions());
+
+        final var implicitWhere = entity.implicitFiltering() == null
+                ? null
+                : prepareImplicitWhere(entity.implicitFiltering().view(), 1);
+        final var filterableKeys = filterableKeys(entity);
+        final var wherePrefix = "where" + (implicitWhere != null ? " (" + implicitWhere.sql() + ") AND " : "");
+        final var defaultWhere = implicitWhere != null ? " where (" + implicitWhere.sql() + ")" : "";
+        final var whereStartIndex = (implicitWhere == null ? 0 : implicitWhere.binders().size()) + 1;
+
+        // with implicit filtering the result depends on the caller so don't share it
+        final var cacheTtl = TimeUnit.SECONDS.toMillis(aggregation.cacheTtl());
+        final var cache = cacheTtl > 0 && implicitWhere == null
+                ? new BoundedExpiringCache<String, Map<String, Object>>(
+                        aggregation.cacheMaxSize() == null ? 256 : aggregation.cacheMaxSize())
+                : null;
+
+        final var spanName = entity.name() + ".aggregate";
+
+        return ctx -> {
+            if (!(ctx.params() instanceof Map<?, ?> params)) {
+                throw new JsonRpcException(400, "Invalid request: " + ctx.params());
+            }
+
+            final var cacheKey = cache == null ? null : jsonMapper.toString(new TreeMap<>(params));
+            if (cacheKey != null) {
+                final var cached = cache.get(cacheKey);
+                if (cached != null) {
+                    return completedFuture(cached);
+                }
+            }
+
+            final var groupBy = toGroupBy(params.get("groupBy"), groupByKeys);
+            final var aggregates = toAggregates(params.get("aggregates"), functions, aggregatedKeys);
+
+            WhereClause where = null;
+            if (params.get("filters") instanceof Map<?, ?> filters && !filters.isEmpty()) {
+                final var invalidKeys = filters.keySet().stream()
+                        .map(String::valueOf)
+                        .filter(Predicate.not(filterableKeys::containsKey))
+                        .toList();
+                if (!invalidKeys.isEmpty()) {
+                    throw new JsonRpcException(400, "Invalid request, can't filter on " + invalidKeys);
+                }
+                where = toWhereClause(
+                        filters, filterableKeys, entity.allowedWhereOperators(), whereStartIndex, wherePrefix);
+            }
+
+            final var groupByColumns = groupBy.stream().map(groupByKeys::get).toList();
+            final var sql = Stream.concat(groupByColumns.stream(), aggregates.stream().map(Aggregate::sql))
+                            .collect(joining(", ", "select ", " from " + entity.table()))
+                    + (where == null ? defaultWhere : where.sql())
+                    + (groupByColumns.isEmpty()
+                            ? ""
+                            : " group by " + String.join(", ", groupByColumns) + " order by "
+                                    + String.join(", ", groupByColumns));
+            final var columns = Stream.concat(groupBy.stream(), aggregates.stream().map(Aggregate::name))
+                    .toList();
+
+            final var whereRef = where;
+            final var rows = executeInTx(
+                    ctx.request(),
+                    spanName,
+                    Map.of("sql.aggregate", sql),
+                    transactionManager::readSQL,
+                    connection -> doAggregate(connection, sql, implicitWhere, whereRef, columns.size(), ctx));
+
+            // compact rows: column names are sent once and each group is a plain array
+            final Map<String, Object> result = Map.of("columns", columns, "items", rows);
+            if (cacheKey != null) {
+                cache.put(cacheKey, result, System.currentTimeMillis() + cacheTtl);
+            }
+            return completedFuture(result);
+        };
+    }
+
+    private Map<String, String> aggregationKeys(final Entity entity, final List<String> keys) {
+        return keys == null
+                ? Map.of()
+                : keys.stream()
+                        .collect(toMap(
+                                identity(),
+                                k -> requireNonNull(
+                                        entity.mapping().jsonToDatabase().get(k),
+                                        () -> "Invalid aggregation key '" + k + "'")));
+    }
+
+    private List<String> toGroupBy(final Object param, final Map<String, String> groupByKeys) {
+        if (param == null) {
+            return List.of();
+        }
+        if (!(param instanceof List<?> list)) {
+            throw new JsonRpcException(400, "Invalid groupBy, it must be a list of property names");
+        }
+        return list.stream()
+                .map(it -> {
+                    if (!(it instanceof String key) || !groupByKeys.containsKey(key)) {
+                        throw new JsonRpcException(400, "Invalid groupBy key: '" + it + "'");
+                    }
+                    return key;
+                })
+                .distinct()
+                .toList();
+    }
+
+    // [{"function":"count"}, {"function":"sum","property":"amount"}]
+    private List<Aggregate> toAggregates(
+            final Object param, final Set<String> functions, final Map<String, String> aggregatedKeys) {
+        if (param == null) {
+            return List.of(new Aggregate("count", "count(*)"));
+        }
+        if (!(param instanceof List<?> list) || list.isEmpty()) {
+            throw new JsonRpcException(400, "Invalid aggregates, it must be a non empty list of functions");
+        }
+        return list.stream()
+                .map(it -> {
+                    if (!(it instanceof Map<?, ?> spec) || !(spec.get("function") instanceof String function)) {
+                        throw new JsonRpcException(400, "Invalid aggregate: " + it);
+                    }
+                    final var lowerCase = function.toLowerCase(ROOT);
+                    if (!functions.contains(lowerCase)) {
+                        throw new JsonRpcException(400, "Invalid aggregate function: '" + function + "'");
+                    }
+
+                    final var property = spec.get("property");
+                    if (property == null) {
+                        if (!"count".equals(lowerCase)) {
+                            throw new JsonRpcException(400, "Aggregate function '" + function + "' needs a property");
+                        }
+                        return new Aggregate("count", "count(*)");
+                    }
+                    final var column = aggregatedKeys.get(String.valueOf(property));
+                    if (column == null) {
+                        throw new JsonRpcException(400, "Invalid aggregated property: '" + property + "'");
+                    }
+                    return new Aggregate(lowerCase + '_' + property, lowerCase + '(' + column + ')');
+                })
+                .toList();
+    }
+
+    private List<List<Object>> doAggregate(
+            final Connection connection,
+            final String sql,
+            final WhereClause implicitWhere,
+            final WhereClause where,
+            final int columns,
+            final JsonRpcMethod.Context context) {
+        try (final var stmt = connection.prepareStatement(sql)) {
+            final var ctx = new BindingContext(context, List.of());
+            if (implicitWhere != null) {
+                for (final var binder : implicitWhere.binders()) {
+                    binder.accept(ctx, stmt);
+                }
+            }
+            if (where != null) {
+                for (final var binder : where.binders()) {
+                    binder.accept(ctx, stmt);
+                }
+            }
+
+            // read one more row to detect a too wide grouping instead of silently truncating it
+            stmt.setMaxRows(MAX_AGGREGATE_ROWS + 1);
+            final var rows = new ArrayList<List<Object>>();
+            try (final var rset = stmt.executeQuery()) {
+                while (rset.next()) {
+                    if (rows.size() == MAX_AGGREGATE_ROWS) {
+                        throw new JsonRpcException(
+                                400,
+                                "Too many groups, refine the filters or the groupBy keys",
+                                Map.of("maxGroups", MAX_AGGREGATE_ROWS),
+                                null);
+                    }
+                    final var row = new ArrayList<>(columns);
+                    for (int i = 1; i <= columns; i++) {
+                        row.add(rset.getObject(i));
+                    }
+                    rows.add(row);
+                }
+            }
+            return rows;
+        } catch (final SQLException ex) {
+            throw new JsonRpcException(500, "Can't aggregate entities", null, ex);
+        }
+    }
+
+    private long doWriteByFilter(
+            final Connection connection,
+            final String countSql,
+            final SQLBiConsumer<BindingContext, PreparedStatement> countBinder,
+            final String writeSql,
+            final SQLBiConsumer<BindingContext, PreparedStatement> writeBinder,
+            final List<Object> values,
+            final int maxAffectedRows,
+            final JsonRpcMethod.Context context) {
+        final var bindingContext = new BindingContext(context, values);
+        try {
+            // check before writing, in a bulk the connection is shared so we can't rely on a rollback
+            try (final var stmt = connection.prepareStatement(countSql)) {
+                countBinder.accept(bindingContext, stmt);
+                try (final var rset = stmt.executeQuery()) {
+                    final long matched = rset.next() ? rset.getLong(1) : 0;
+                    if (matched > maxAffectedRows) {
+                        throw new JsonRpcException(
+                                400,
+                                "Too many matching entities, refine the filters",
+                                Map.of("matched", matched, "maxAffectedRows", maxAffectedRows),
+                                null);
+                    }
+                }
+            }
+            try (final var stmt = connection.prepareStatement(writeSql)) {
+                writeBinder.accept(bindingContext, stmt);
+                return stmt.executeUpdate();
+            }
+        } catch (final SQLException ex) {
+            throw new JsonRpcException(500, "Can't modify entities", null, ex);
+        }
+    }
+
+    // if the model exposes security tables, ensure login/refresh don't use stale users
+    private Runnable onWrite(final Entity entity) {
+        final var table = entity.table().toLowerCase(ROOT);
+        final int schemaSep = table.lastIndexOf('.');
+        final var name = schemaSep > 0 ? table.substring(schemaSep + 1) : table;
+        return name.startsWith("hcms_user") || name.startsWith("hcms_role") ? userCache::clear : () -> {};
+    }
+
     private Object doUpdate(
             final Entity entity,
             final Connection connection,
@@ -688,6 +1715,7 @@ public class ModelHandler {
 
         final var spanName = entity.name() + ".create";
         final var spanTags = Map.<String, Object>of("sql", insertSql);
+        final var onWrite = onWrite(entity);
 
         return ctx -> {
             doValidate(entity.validator(), ctx);
@@ -701,6 +1729,7 @@ public class ModelHandler {
                     spanTags,
                     transactionManager::writeSQL,
                     connection -> doCreate(connection, statementFactory, bindAll, values, result, postExecute, ctx));
+            onWrite.run();
             return completedFuture(result);
         };
     }
@@ -740,6 +1769,7 @@ public class ModelHandler {
 
         final var spanName = entity.name() + ".deleteById";
         final var spanTags = Map.<String, Object>of("sql", deleteById);
+        final var onWrite = onWrite(entity);
 
         return ctx -> {
             final var ids = findValuesFromParams(ctx.params(), identifiers, false);
@@ -749,6 +1779,7 @@ public class ModelHandler {
                     spanTags,
                     transactionManager::writeSQL,
                     connection -> doDeleteById(binder, connection, deleteById, ids, ctx));
+            onWrite.run();
             return completedFuture(Map.of("success", true));
         };
     }
@@ -798,6 +1829,15 @@ public class ModelHandler {
         final var findByIdSql = "select " + columns + sqlEnd;
         final var binder = mergeBinders(entity.bindIdsNotNullable(), implicitWhere);
 
+        // conditional reads only fetch the revision column to check if the client one is up to date
+        final var revisionSql = entity.revisionProperty() == null
+                ? null
+                : "select max("
+                        + entity.mapping()
+                                .jsonToDatabase()
+                                .getOrDefault(entity.revisionProperty(), entity.revisionProperty())
+                        + ")" + sqlEnd;
+
         final var spanName = entity.name() + ".findById";
         final var spanTags = Map.<String, Object>of("sql", findByIdSql);
 
@@ -811,6 +1851,8 @@ public class ModelHandler {
                 renderers = Map.of();
             }
 
+            final var include = ctx.params() instanceof Map<?, ?> map ? toInclude(map.get("include")) : null;
+
             final List<String> fields;
             if (ctx.params() instanceof Map<?, ?> map && map.get("fields") instanceof List<?> f) {
                 @SuppressWarnings("unchecked")
@@ -820,6 +1862,40 @@ public class ModelHandler {
                 fields = null;
             }
 
+            final boolean conditional = ctx.params() instanceof Map<?, ?> map && map.containsKey("ifNoneMatch");
+            final var ifNoneMatch = conditional && ((Map<?, ?>) ctx.params()).get("ifNoneMatch") instanceof String v
+                    ? v
+                    : null;
+
+            // related rows don't change the revision so the payload hash is the only reliable etag with include
+            final String revision;
+            if (conditional && revisionSql != null && include == null) {
+                final var rowRevision = executeInTx(
+                        ctx.request(),
+                        spanName,
+                        Map.of("sql", revisionSql),
+                        transactionManager::readSQL,
+                        connection -> findRevision(binder, connection, revisionSql, ids, ctx));
+                // the projection and rendering change the payload so they are part of the etag
+                revision = rowRevision == null
+                        ? null
+                        : (fields == null && renderers.isEmpty()
+                                ? rowRevision
+                                : rowRevision + '-'
+                                        + hash(Map.of(
+                                                "fields",
+                                                fields == null ? List.of() : fields,
+                                                "renderers",
+                                                ((Map<?, ?>) ctx.params()).get("renderers") instanceof Map<?, ?> r
+                                                        ? r
+                                                        : Map.of())));
+                if (ifNoneMatch != null && ifNoneMatch.equals(revision)) {
+                    return completedFuture(notModified(revision));
+                }
+            } else {
+                revision = null;
+            }
+
             final var selectAllFields =
                     fields == null || (fields.size() == 1 && Objects.equals(fields.getFirst(), "*"));
             final var sql = selectAllFields
@@ -836,12 +1912,61 @@ public class ModelHandler {
                     spanName,
                     spanTags,
                     transactionManager::readSQL,
-                    connection -> doFindById(
-                            binder, ctx.request(), connection, sql, ids, names, identifiers, ctx, renderers));
-            return completedFuture(result);
+                    connection -> {
+                        final var found = doFindById(
+                                binder, ctx.request(), connection, sql, ids, names, identifiers, ctx, renderers);
+                        loadIncludes(ctx, connection, entity, List.of(found), include);
+                        return found;
+                    });
+            if (!conditional) {
+                return completedFuture(result);
+            }
+
+            final var etag = revision != null ? revision : hash(result);
+            if (ifNoneMatch != null && ifNoneMatch.equals(etag)) {
+                return completedFuture(notModified(etag));
+            }
+            final var withEtag = new TreeMap<>(result);
+            withEtag.put("_etag", etag);
+            return completedFuture(withEtag);
         };
     }
 
+    private String findRevision(
+            final SQLBiConsumer<BindingContext, PreparedStatement> bindIds,
+            final Connection connection,
+            final String revisionSql,
+            final List<Object> ids,
+            final JsonRpcMethod.Context context) {
+        try (final var stmt = connection.prepareStatement(revisionSql)) {
+            bindIds.accept(new BindingContext(context, ids), stmt);
+            try (final var rset = stmt.executeQuery()) {
+                if (!rset.next()) {
+                    throw new JsonRpcException(
+                            404, "Entity not found", Map.of("id", ids.size() == 1 ? ids.getFirst() : ids), null);
+                }
+                return rset.getString(1);
+            }
+        } catch (final SQLException ex) {
+            throw new JsonRpcException(500, "Can't find entity", null, ex);
+        }
+    }
+
+    private Map<String, Object> notModified(final String etag) {
+        return Map.of("_notModified", true, "_etag", etag == null ? "" : etag);
+    }
+
+    // stable (sorted) serialization of the row, used as etag when there is no revision
+    private String hash(final Map<String, Object> result) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256")
+                    .digest(jsonMapper.toString(new TreeMap<>(result)).getBytes(UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private Map<String, Object> doFindById(
             final SQLBiConsumer<BindingContext, PreparedStatement> bindIds,
             final Request request,
@@ -1059,6 +2184,33 @@ public class ModelHandler {
         throw new IllegalArgumentException("Unknown revision type: " + jsonSchema);
     }
 
+    private Object toRevisionValue(final Model.JsonSchema jsonSchema, final Object value) {
+        try {
+            if (jsonSchema.type().contains(number)) {
+                return value instanceof Number n ? n.longValue() : Long.parseLong(value.toString());
+            }
+            return value instanceof OffsetDateTime d ? d : OffsetDateTime.parse(value.toString());
+        } catch (final RuntimeException re) {
+            throw new JsonRpcException(400, "Invalid expectedRevision: " + value);
+        }
+    }
+
+    // the new revision must differ from the expected one even if both updates happen in the same millisecond
+    private List<Object> ensureRevisionAfter(final List<Object> values, final int index, final Object expected) {
+        final var current = values.get(index);
+        final Object next;
+        if (current instanceof Long c && expected instanceof Long e) {
+            next = c > e ? c : e + 1;
+        } else if (current instanceof OffsetDateTime c && expected instanceof OffsetDateTime e) {
+            next = c.isAfter(e) ? c : e.plusNanos(1_000);
+        } else {
+            return values;
+        }
+        final var copy = new ArrayList<>(values);
+        copy.set(index, next);
+        return copy;
+    }
+
     private Map<String, Object> requestToResult(
             final List<String> jsonPropertiesName, final Iterator<Object> valuesIt) {
         return jsonPropertiesName.stream()
@@ -1307,11 +2459,17 @@ public class ModelHandler {
                                 .collect(toMap(Map.Entry::getValue, Map.Entry::getKey, (a, b) -> a, TreeMap::new))),
                 spec.implicitFiltering(),
                 spec.validateWithJsonSchema()
-                        ? validatorFactory.newInstance(asGenericObject(schema))
+                        ? new LazyValidator(() -> validatorFactory.newInstance(asGenericObject(schema)))
                         : o -> validationOk,
+                spec.validateWithJsonSchema(),
                 toWhereIds(identifiers, json2DbNames),
                 createBinder(spec.name(), schema, identifiers, false),
-                createBinder(spec.name(), schema, identifiers, true));
+                createBinder(spec.name(), schema, identifiers, true),
+                spec.httpCacheControl() == null || spec.httpCacheControl().isBlank()
+                        ? "public, max-age=60"
+                        : spec.httpCacheControl(),
+                spec.relations() == null ? Map.of() : spec.relations(),
+                spec.aggregation());
     }
 
     private void validateEntity(final Model.EntitySpec spec) { // todo: aggregate the errors in one
@@ -1374,6 +2532,231 @@ public class ModelHandler {
                         + revisionField + "' in entity '" + spec.name() + "'");
             }
         }
+
+        if (spec.relations() != null) {
+            for (final var relation : spec.relations().entrySet()) {
+                if (relation.getValue().type() == null || relation.getValue().entity() == null) {
+                    throw new IllegalArgumentException("Relation '" + relation.getKey() + "' of entity '" + spec.name()
+                            + "' must have a type and an entity");
+                }
+                if (spec.jsonSchema().properties().containsKey(relation.getKey())) {
+                    throw new IllegalArgumentException("Relation '" + relation.getKey() + "' of entity '" + spec.name()
+                            + "' conflicts with a property");
+                }
+                final var localKey = relation.getValue().localKey();
+                if (localKey != null && !spec.jsonSchema().properties().containsKey(localKey)) {
+                    throw new IllegalArgumentException(
+                            "Property not found: '" + localKey + "' in entity '" + spec.name() + "'");
+                }
+            }
+        }
+
+        if (spec.aggregation() != null) {
+            final var aggregation = spec.aggregation();
+            final var unknownKeys = Stream.of(aggregation.allowedGroupByKeys(), aggregation.allowedAggregatedKeys())
+                    .filter(Objects::nonNull)
+                    .flatMap(List::stream)
+                    .filter(Predicate.not(spec.jsonSchema().properties()::containsKey))
+                    .distinct()
+                    .toList();
+            if (!unknownKeys.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Invalid aggregation keys in entity '" + spec.name() + "': " + unknownKeys);
+            }
+            if (aggregation.allowedFunctions() != null
+                    && !AGGREGATE_FUNCTIONS.containsAll(aggregation.allowedFunctions())) {
+                throw new IllegalArgumentException("Invalid aggregation functions in entity '" + spec.name() + "': "
+                        + aggregation.allowedFunctions() + ", supported: " + new TreeSet<>(AGGREGATE_FUNCTIONS));
+            }
+        }
+    }
+
+    // relations can only be checked once all entities are known
+    private void validateRelations(final Map<String, Entity> entities) {
+        for (final var entity : entities.values()) {
+            for (final var relation : entity.relations().entrySet()) {
+                final var target = entities.get(relation.getValue().entity());
+                if (target == null) {
+                    throw new IllegalArgumentException("Missing entity '" + relation.getValue().entity()
+                            + "' referenced by relation '" + relation.getKey() + "' of '" + entity.name() + "'");
+                }
+                final var foreignKey = foreignKey(target, relation.getValue());
+                if (foreignKey == null || !target.schema().properties().containsKey(foreignKey)) {
+                    throw new IllegalArgumentException("Invalid foreign key '" + foreignKey + "' for relation '"
+                            + relation.getKey() + "' of '" + entity.name() + "'");
+                }
+            }
+        }
+    }
+
+    private String localKey(final Entity entity, final Model.Relation relation) {
+        return relation.localKey() != null
+                ? relation.localKey()
+                : (relation.type() == Model.RelationType.ONE_TO_MANY
+                        ? entity.identifiers().getFirst()
+                        : null);
+    }
+
+    private String foreignKey(final Entity target, final Model.Relation relation) {
+        return relation.foreignKey() != null
+                ? relation.foreignKey()
+                : (relation.type() == Model.RelationType.MANY_TO_ONE
+                        ? target.identifiers().getFirst()
+                        : null);
+    }
+
+    // include=["comments", "comments.author"] -> comments -> author
+    private Include toInclude(final Object param) {
+        if (param == null) {
+            return null;
+        }
+        if (!(param instanceof List<?> list)) {
+            throw new JsonRpcException(400, "Invalid include, it must be a list of relation names");
+        }
+        if (list.isEmpty()) {
+            return null;
+        }
+
+        final var root = new Include(new TreeMap<>());
+        for (final var item : list) {
+            if (!(item instanceof String path) || path.isBlank()) {
+                throw new JsonRpcException(400, "Invalid include: " + item);
+            }
+            final var segments = path.split("\\.");
+            if (segments.length > MAX_INCLUDE_DEPTH) {
+                throw new JsonRpcException(
+                        400, "Include '" + path + "' is too deep, max depth is " + MAX_INCLUDE_DEPTH);
+            }
+            var current = root;
+            for (final var segment : segments) {
+                current = current.children().computeIfAbsent(segment, k -> new Include(new TreeMap<>()));
+            }
+        }
+        return root;
+    }
+
+    // loads each relation for all the rows at once (one IN query per relation and level) and stitches it in memory
+    private void loadIncludes(
+            final JsonRpcMethod.Context context,
+            final Connection connection,
+            final Entity entity,
+            final List<Map<String, Object>> rows,
+            final Include include) {
+        if (include == null || rows.isEmpty()) {
+            return;
+        }
+
+        for (final var it : include.children().entrySet()) {
+            final var relation = entity.relations().get(it.getKey());
+            if (relation == null) {
+                throw new JsonRpcException(
+                        400, "Unknown relation '" + it.getKey() + "' for entity '" + entity.name() + "'");
+            }
+            final var target = entities.get(relation.entity());
+            final var guard = viewGuards.get(relation.entity());
+            if (target == null || guard == null) {
+                throw new JsonRpcException(403, "Relation '" + it.getKey() + "' is not readable");
+            }
+            guard.apply(context); // fails if the caller can't read the related entity
+
+            final var localKey = localKey(entity, relation);
+            final var foreignKey = foreignKey(target, relation);
+            final var keys = rows.stream()
+                    .map(row -> row.get(localKey))
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
+            final var related = keys.isEmpty()
+                    ? List.<Map<String, Object>>of()
+                    : findRelated(
+                            context,
+                            connection,
+                            target,
+                            foreignKey,
+                            keys,
+                            relation.maxItems() == null ? 1_000 : relation.maxItems());
+            loadIncludes(context, connection, target, related, it.getValue());
+
+            // keys are compared as strings to not depend on the numeric type returned by the driver
+            if (relation.type() == Model.RelationType.ONE_TO_MANY) {
+                final var byKey = related.stream().collect(groupingBy(r -> String.valueOf(r.get(foreignKey))));
+                for (final var row : rows) {
+                    row.put(it.getKey(), byKey.getOrDefault(String.valueOf(row.get(localKey)), List.of()));
+                }
+            } else {
+                final var byKey = related.stream()
+                        .collect(toMap(r -> String.valueOf(r.get(foreignKey)), identity(), (a, b) -> a));
+                for (final var row : rows) {
+                    final var value = row.get(localKey);
+                    final var match = value == null ? null : byKey.get(String.valueOf(value));
+                    if (match != null) {
+                        row.put(it.getKey(), match);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Map<String, Object>> findRelated(
+            final JsonRpcMethod.Context context,
+            final Connection connection,
+            final Entity target,
+            final String foreignKey,
+            final List<Object> keys,
+            final int maxItems) {
+        final var implicitWhere = target.implicitFiltering() == null
+                ? null
+                : prepareImplicitWhere(target.implicitFiltering().view(), 1);
+        // same latest revision selection than findAll
+        final var revisionGroupBy = target.revisionProperty() != null
+                ? target.mapping().databaseToJson().entrySet().stream()
+                        .filter(i -> target.identifiers().contains(i.getValue()))
+                        .map(Map.Entry::getKey)
+                        .collect(joining(", ", " group by ", ""))
+                : "";
+        final var sql = target.mapping().databaseToJson().entrySet().stream()
+                        .map(name -> selectColumn(target.revisionProperty(), name))
+                        .collect(joining(", ", "select ", " from " + target.table() + " where "))
+                + (implicitWhere != null ? "(" + implicitWhere.sql() + ") AND " : "")
+                + target.mapping().jsonToDatabase().get(foreignKey)
+                + keys.stream().map(k -> "?").collect(joining(", ", " in (", ")"))
+                + revisionGroupBy;
+        final int offset = implicitWhere == null ? 0 : implicitWhere.binders().size();
+        try (final var stmt = connection.prepareStatement(sql)) {
+            final var bindingContext = new BindingContext(context, List.of());
+            if (implicitWhere != null) {
+                for (final var binder : implicitWhere.binders()) {
+                    binder.accept(bindingContext, stmt);
+                }
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                stmt.setObject(offset + i + 1, keys.get(i));
+            }
+            stmt.setMaxRows(maxItems + 1);
+
+            final var out = new ArrayList<Map<String, Object>>();
+            try (final var rset = stmt.executeQuery()) {
+                while (rset.next()) {
+                    if (out.size() == maxItems) {
+                        throw new JsonRpcException(
+                                400,
+                                "Too many related '" + target.name() + "', max is " + maxItems,
+                                Map.of("maxItems", maxItems),
+                                null);
+                    }
+                    out.add(toMapResult(
+                            context.request(),
+                            rset,
+                            target.mapping().databaseToJson(),
+                            List.of(),
+                            List.of(),
+                            Map.of()));
+                }
+            }
+            return out;
+        } catch (final SQLException ex) {
+            throw new JsonRpcException(500, "Can't load related entities", null, ex);
+        }
     }
 
     private String selectColumn(final String dbRevisionColumn, final Map.Entry<String, String> name) {
@@ -1395,23 +2778,33 @@ public class ModelHandler {
     }
 
     private void doValidate(final Function<Object, ValidationResult> validator, final JsonRpcMethod.Context ctx) {
-        final var errors = ctx.params() instanceof Map<?, ?> map
-                ? validator.apply(map)
-                : new ValidationResult(List.of(
-                        new ValidationResult.ValidationError("", "Invalid request, it must use named parameters")));
+        if (ctx.params() instanceof Map<?, ?> map) {
+            validate(validator, map);
+        } else {
+            onValidationErrors(new ValidationResult(List.of(
+                    new ValidationResult.ValidationError("", "Invalid request, it must use named parameters"))));
+        }
+    }
+
+    private void validate(final Function<Object, ValidationResult> validator, final Map<?, ?> values) {
+        final var errors = validator.apply(values);
         if (!errors.isSuccess()) {
-            throw new JsonRpcException(
-                    400,
-                    "Invalid request",
-                    Map.of(
-                            "errors",
-                            errors.errors().stream()
-                                    .map(e -> Map.of("field", e.field(), "message", e.message()))
-                                    .toList()),
-                    null);
+            onValidationErrors(errors);
         }
     }
 
+    private void onValidationErrors(final ValidationResult errors) {
+        throw new JsonRpcException(
+                400,
+                "Invalid request",
+                Map.of(
+                        "errors",
+                        errors.errors().stream()
+                                .map(e -> Map.of("field", e.field(), "message", e.message()))
+                                .toList()),
+                null);
+    }
+
     @SuppressWarnings("unchecked")
     private Map<String, Object> asGenericObject(final Object entity) {
         return (Map<String, Object>) jsonMapper.fromString(Object.class, jsonMapper.toString(entity));
@@ -1430,5 +2823,57 @@ public class ModelHandler {
 
     private record WhereClause(String sql, List<SQLBiConsumer<BindingContext, PreparedStatement>> binders) {}
 
+    private record CompiledMethod(Entity entity, JsonRpcMethod method) {}
+
+    public record HttpReadMethod(JsonRpcMethod method, Entity entity) {}
+
+    // building a validator is costly and not all entities are validated early so defer it to the first call
+    private static class LazyValidator implements Function<Object, ValidationResult> {
+        private final Supplier<Function<Object, ValidationResult>> factory;
+        private volatile Function<Object, ValidationResult> delegate;
+
+        private LazyValidator(final Supplier<Function<Object, ValidationResult>> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public ValidationResult apply(final Object o) {
+            var validator = delegate;
+            if (validator == null) {
+                synchronized (this) {
+                    validator = delegate;
+                    if (validator == null) {
+                        validator = factory.get();
+                        delegate = validator;
+                    }
+                }
+            }
+            return validator.apply(o);
+        }
+    }
+
+    private record Include(Map<String, Include> children) {}
+
+    private record Aggregate(String name, String sql) {}
+
+    private record UpdateByFilterStatement(
+            String sql,
+            List<String> bindingNames,
+            SQLBiConsumer<BindingContext, PreparedStatement> binder,
+            BiFunction<JsonRpcMethod.Context, List<Object>, List<Object>> managedValues,
+            String wherePrefix,
+            int whereStartIndex,
+            Function<Object, ValidationResult> validator) {}
+
+    private record PatchStatement(
+            String sql,
+            String conditionalSql,
+            int expectedRevisionIndex,
+            List<String> bindingNames,
+            SQLBiConsumer<BindingContext, PreparedStatement> binder,
+            BiFunction<JsonRpcMethod.Context, List<Object>, List<Object>> managedValues,
+            int revisionIndex,
+            Function<Object, ValidationResult> validator) {}
+
     record BindingContext(JsonRpcMethod.Context context, List<Object> values) {}
 }
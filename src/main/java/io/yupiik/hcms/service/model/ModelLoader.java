@@ -16,6 +16,13 @@
 package io.yupiik.hcms.service.model;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.logging.Level.SEVERE;
+import static java.util.stream.Collectors.toUnmodifiableSet;
 
 import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
 import io.yupiik.fusion.framework.api.scope.DefaultScoped;
@@ -28,12 +35,18 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 @DefaultScoped
 public class ModelLoader {
@@ -51,8 +64,9 @@ public class ModelLoader {
         final var path = Path.of(configuration.modelLocation());
 
         if (Files.exists(path)) {
-            final var reloadedModel = new ReloadedModel(path, jsonMapper);
+            final var reloadedModel = new ReloadedModel(path, jsonMapper, configuration.devModeDebounce());
             if (configuration.devMode()) {
+                reloadedModel.start();
                 return reloadedModel;
             }
 
@@ -85,44 +99,132 @@ public class ModelLoader {
         Model get();
     }
 
+    /**
+     * Model watching the model file and its SQL scripts - in a background thread - to reload it when they change.
+     * Requests only read the volatile current model, there is no filesystem access on this path.
+     */
     private static class ReloadedModel implements DynamicModel {
+        private final Logger logger = Logger.getLogger(getClass().getName());
+
         private final Path path;
         private final JsonMapper jsonMapper;
+        private final long debounce;
 
         private final Collection<Consumer<Model>> onReload = new CopyOnWriteArrayList<>();
         private final Lock lock = new ReentrantLock();
-        private volatile long lastLoaded = -2;
         private volatile Model current;
+        private volatile Set<Path> watchedFiles = Set.of();
 
-        private ReloadedModel(final Path path, final JsonMapper jsonMapper) {
-            this.path = path;
+        private ReloadedModel(final Path path, final JsonMapper jsonMapper, final long debounce) {
+            this.path = path.toAbsolutePath().normalize();
             this.jsonMapper = jsonMapper;
-            reload();
+            this.debounce = debounce;
+            this.current = read();
+            this.watchedFiles = computeWatchedFiles(current);
+        }
+
+        private void start() {
+            Thread.ofPlatform().name("hcms-model-watcher").daemon().start(this::watch);
+        }
+
+        private void watch() {
+            try (final var watchService = path.getFileSystem().newWatchService()) {
+                final var watchedDirectories = new HashSet<Path>();
+                registerDirectories(watchService, watchedDirectories);
+                while (!Thread.currentThread().isInterrupted()) {
+                    var key = watchService.take();
+                    boolean changed = false;
+                    do { // debounce: wait for the writes to be done (editors often write multiple times)
+                        changed |= isRelevant(key);
+                        key.reset();
+                        key = watchService.poll(debounce, MILLISECONDS);
+                    } while (key != null);
+
+                    if (changed) {
+                        reload();
+                        registerDirectories(watchService, watchedDirectories); // sql scripts can have changed
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final IOException | RuntimeException e) {
+                logger.log(SEVERE, e, () -> "Model watcher failed, model will no more be reloaded: " + e.getMessage());
+            }
+        }
+
+        private boolean isRelevant(final WatchKey key) {
+            final var files = watchedFiles;
+            final var directory = (Path) key.watchable();
+            boolean relevant = false;
+            for (final var event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW
+                        || (event.context() instanceof Path relative && files.contains(directory.resolve(relative)))) {
+                    relevant = true;
+                }
+            }
+            return relevant;
+        }
+
+        private void registerDirectories(final WatchService watchService, final Set<Path> watchedDirectories)
+                throws IOException {
+            for (final var file : watchedFiles) {
+                final var parent = file.getParent();
+                if (parent != null && watchedDirectories.add(parent)) {
+                    parent.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                }
+            }
         }
 
         private void reload() {
+            lock.lock();
             try {
-                long last = Files.getLastModifiedTime(path).toMillis();
-                if (last > lastLoaded) {
-                    lock.lock();
-                    last = Files.getLastModifiedTime(path).toMillis();
-                    if (last > lastLoaded) {
-                        try {
-                            lastLoaded = last;
-                            try (final var in = Files.newBufferedReader(path)) {
-                                current = jsonMapper.read(Model.class, in);
-                            }
-                            onReload.forEach(c -> c.accept(current));
-                        } finally {
-                            lock.unlock();
-                        }
-                    }
+                final var model = read();
+                final var files = computeWatchedFiles(model);
+                try {
+                    logger.info(() -> "Reloading model '" + path + "'");
+                    onReload.forEach(c -> c.accept(model));
+                } catch (final RuntimeException re) {
+                    // still watch new scripts since fixing them must trigger a reload
+                    watchedFiles = Stream.concat(watchedFiles.stream(), files.stream())
+                            .collect(toUnmodifiableSet());
+                    throw re;
                 }
+                // only expose the model once registered methods and docs match it
+                current = model;
+                watchedFiles = files;
+            } catch (final RuntimeException re) { // keep previous model
+                logger.log(SEVERE, re, () -> "Can't reload model '" + path + "': " + re.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Model read() {
+            try (final var in = Files.newBufferedReader(path)) {
+                return jsonMapper.read(Model.class, in);
             } catch (final IOException e) {
                 throw new IllegalStateException(e);
             }
         }
 
+        // model + sql scripts which are on the filesystem (classpath ones can't change)
+        private Set<Path> computeWatchedFiles(final Model model) {
+            final var files = new HashSet<Path>();
+            files.add(path);
+            if (model.sql() != null) {
+                final var parent = path.getParent();
+                for (final var script : model.sql()) {
+                    final var direct = Path.of(script);
+                    if (Files.exists(direct)) {
+                        files.add(direct.toAbsolutePath().normalize());
+                    } else if (parent != null && Files.exists(parent.resolve(script))) {
+                        files.add(parent.resolve(script).toAbsolutePath().normalize());
+                    }
+                }
+            }
+            return Set.copyOf(files);
+        }
+
         @Override
         public Model get() {
             return current;
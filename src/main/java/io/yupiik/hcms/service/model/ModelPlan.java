@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.yupiik.fusion.framework.build.api.json.JsonModel;
+import io.yupiik.fusion.json.JsonMapper;
+import io.yupiik.hcms.service.model.json.Model;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Precompiled model artifact (see {@code precompile-model} command), it holds what is costly to compute at startup.
+ *
+ * @param modelHash hash of the model and HCMS version the plan was computed from, the plan is ignored if it does not
+ *                  match since another release can generate other methods and documentation.
+ * @param port      port used for the default OpenAPI server.
+ * @param title     API title.
+ * @param openrpc   serialized OpenRPC document, {@code null} if disabled.
+ * @param openapi   serialized OpenAPI document, {@code null} if disabled.
+ */
+@JsonModel
+public record ModelPlan(String modelHash, int port, String title, String openrpc, String openapi) {
+    private static final String VERSION = loadVersion();
+
+    public static String hash(final JsonMapper jsonMapper, final Model model) {
+        return hash(VERSION, jsonMapper, model);
+    }
+
+    public static String hash(final String version, final JsonMapper jsonMapper, final Model model) {
+        try {
+            return HexFormat.of()
+                    .formatHex(MessageDigest.getInstance("SHA-256")
+                            .digest((version + '\n' + jsonMapper.toString(model)).getBytes(UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the file is filtered by the build
+    private static String loadVersion() {
+        final var props = new Properties();
+        try (final var in = ModelPlan.class.getClassLoader().getResourceAsStream("META-INF/hcms/build.properties")) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return props.getProperty("version", "dev") + '-' + props.getProperty("commit", "");
+    }
+}
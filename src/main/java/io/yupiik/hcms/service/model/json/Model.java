@@ -31,7 +31,10 @@ public record Model(
                                 "Should `/swagger-ui/` endpoint be enabled, ensure to also set `enableOpenAPI` to `true`.",
                         defaultValue = "true")
                 Boolean enableSwaggerUI,
-        @Property(documentation = "List of SQL scripts to execute at model load time.") List<String> sql,
+        @Property(
+                        documentation =
+                                "List of SQL scripts (migrations) to execute at model load time. Each script is applied once and tracked in `HCMS_SCHEMA_HISTORY`, so never modify an applied script, add a new one. In dev mode a modified script is re-applied (so it should be idempotent). To upgrade a database provisioned before the history existed, see `hcms.database-init.baseline`.")
+                List<String> sql,
         @Property(documentation = "Entities to define and make available for JSON-RPC methods.")
                 List<EntitySpec> entities,
         @Property(documentation = "JSON-RPC methods to register.") List<JsonRpcMethod> jsonRpcMethods,
@@ -97,7 +100,68 @@ public record Model(
             @Property(
                             documentation =
                                     "Implicit where clause entries, note that create will need to use `security` since there is no entity context there.")
-                    EntityImplicitFiltering implicitFiltering) {}
+                    EntityImplicitFiltering implicitFiltering,
+            @Property(
+                            documentation =
+                                    "`Cache-Control` header value of `GET /jsonrpc/<method>` responses for anonymous `findById`/`findAll` methods. "
+                                            + "Default to `public, max-age=60`.")
+                    String httpCacheControl,
+            @Property(
+                            documentation =
+                                    "Relations to other entities, the key is the name of the relation (attribute set on the entity) "
+                                            + "and they are loaded when requested by the `include` parameter of `findById` and `findAll`.")
+                    Map<String, Relation> relations,
+            @Property(documentation = "What the `AGGREGATE` method of this entity allows.") Aggregation aggregation) {}
+
+    @JsonModel
+    public record Aggregation(
+            @Property(documentation = "Properties which can be used in `groupBy`.") List<String> allowedGroupByKeys,
+            @Property(
+                            documentation = "Allowed aggregation functions among `count`, `sum`, `avg`, `min` "
+                                    + "and `max`. Default to `count` only.")
+                    List<String> allowedFunctions,
+            @Property(
+                            documentation =
+                                    "Properties which can be aggregated (`count` without property is always allowed).")
+                    List<String> allowedAggregatedKeys,
+            @Property(
+                            documentation =
+                                    "If positive, results are cached this duration (in seconds) per request. "
+                                            + "It is ignored for entities with an implicit view filtering since "
+                                            + "the result depends on the caller.")
+                    long cacheTtl,
+            @Property(documentation = "Max number of cached results when `cacheTtl` is set. Default to 256.")
+                    Integer cacheMaxSize) {}
+
+    @JsonModel
+    public record Relation(
+            @Property(documentation = "Relation type.") RelationType type,
+            @Property(
+                            documentation =
+                                    "Name of the related entity, it must be readable through a `findById` or `findAll` method.")
+                    String entity,
+            @Property(
+                            documentation =
+                                    "Property of this entity used to join. Default to the identifier for `ONE_TO_MANY` relations.")
+                    String localKey,
+            @Property(
+                            documentation =
+                                    "Property of the related entity used to join. Default to its identifier for `MANY_TO_ONE` relations.")
+                    String foreignKey,
+            @Property(
+                            documentation =
+                                    "Max number of related entities loaded at once (for the whole page for `findAll`), if exceeded the call fails. "
+                                            + "Default to 1000.")
+                    Integer maxItems) {}
+
+    @JsonModel
+    public enum RelationType {
+        @Property(documentation = "the relation is a list of related entities having `foreignKey` equal to `localKey`.")
+        ONE_TO_MANY,
+
+        @Property(documentation = "the relation is the related entity (or nothing) referenced by `localKey`.")
+        MANY_TO_ONE
+    }
 
     @JsonModel
     public record EntityImplicitFiltering(
@@ -152,7 +216,13 @@ public record Model(
             @Property(
                             documentation =
                                     "Security model for this method(s) registration(s). If not set, default is equivalent to anonymous access.")
-                    JsonRpcMethodSecurity security) {}
+                    JsonRpcMethodSecurity security,
+            @Property(
+                            documentation =
+                                    "For `DELETE_BY_FILTER` and `UPDATE_BY_FILTER`, max number of rows a call can modify. "
+                                            + "If the filters match more rows, nothing is modified and an error is returned. "
+                                            + "Default to 1000.")
+                    Integer maxAffectedRows) {}
 
     @JsonModel
     public record SecurityValidation(
@@ -196,7 +266,37 @@ public record Model(
         FIND_BY_ID,
 
         @Property(documentation = "only generate `deleteById` JSON-RPC method")
-        DELETE_BY_ID
+        DELETE_BY_ID,
+
+        @Property(
+                documentation = "only generate `patch` JSON-RPC method, a partial `update` only writing the "
+                        + "provided attributes (an explicit `null` clears the column). It is not part of `CRUD`.")
+        PATCH,
+
+        @Property(
+                documentation = "only generate `upsert` JSON-RPC method which creates the entity or updates it if "
+                        + "its identifiers already exist in a single statement (`INSERT ... ON CONFLICT` on PostgreSQL, "
+                        + "`MERGE` for other databases). It is not part of `CRUD` and requires both create and update "
+                        + "permissions.")
+        UPSERT,
+
+        @Property(
+                documentation = "only generate `deleteByFilter` JSON-RPC method which deletes all the entities "
+                        + "matching the `filters` (same syntax than `findAll` ones, at least one is required) "
+                        + "in a single statement and returns the number of deleted rows (`affected`).")
+        DELETE_BY_FILTER,
+
+        @Property(
+                documentation = "only generate `updateByFilter` JSON-RPC method which sets the provided `values` on "
+                        + "all the entities matching the `filters` (same syntax than `findAll` ones, at least one is "
+                        + "required) in a single statement and returns the number of updated rows (`affected`).")
+        UPDATE_BY_FILTER,
+
+        @Property(
+                documentation = "only generate `aggregate` JSON-RPC method which computes aggregations "
+                        + "(`count`, `sum`, ...) grouped by some keys server side, see entity `aggregation` for the "
+                        + "allowed keys and functions. It accepts `findAll` `filters` too.")
+        AGGREGATE
     }
 
     @JsonModel
@@ -15,25 +15,42 @@
  */
 package io.yupiik.hcms.service.persistence;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
+import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.SEVERE;
-import static java.util.stream.Collectors.joining;
 
 import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
 import io.yupiik.fusion.persistence.api.TransactionManager;
 import io.yupiik.hcms.configuration.HCMSConfiguration;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+/**
+ * Applies the model SQL scripts as migrations: each script is executed once and tracked in {@code HCMS_SCHEMA_HISTORY}
+ * with its checksum. Concurrent instances are serialized with a committed lock row in {@code HCMS_SCHEMA_LOCK}
+ * since some databases (H2) commit implicitly on DDL so a transactional row lock would be released too early.
+ * The lock holder refreshes the row while migrating so a crashed instance lock can be detected.
+ */
 @ApplicationScoped
 public class DatabaseLoader {
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
     private final TransactionManager transactionManager;
     private final HCMSConfiguration configuration;
 
@@ -42,47 +59,247 @@ public class DatabaseLoader {
         this.configuration = configuration;
     }
 
-    public void execute(final List<String> scripts, final boolean ignoreErrors) {
+    /**
+     * Executes the scripts not yet recorded in the schema history.
+     * A script already applied with another checksum is replayed in dev mode (it is the script being edited),
+     * otherwise a warning is logged since migrations are expected to be immutable - add a new script instead.
+     * If the history is empty and {@code database-init.baseline} is enabled, scripts are recorded without being
+     * executed (upgrade of a database provisioned before the history existed).
+     *
+     * @param scripts      scripts to apply, in order.
+     * @param ignoreErrors should statement errors be ignored (the script is still recorded as applied).
+     */
+    public void migrate(final List<String> scripts, final boolean ignoreErrors) {
+        if (isDisabled(scripts)) {
+            return;
+        }
+
+        final var contents = new LinkedHashMap<String, String>();
+        for (final var sql : scripts) {
+            contents.put(sql, read(sql));
+        }
+
+        createHistoryTables();
+        transactionManager.writeSQL(c -> {
+            final boolean autoCommit = c.getAutoCommit();
+            if (!autoCommit) { // lock and history rows must be visible to other instances immediately
+                c.commit();
+                c.setAutoCommit(true);
+            }
+            final var lock = lock(c);
+            try {
+                // when DDL commits implicitly a transaction per script brings nothing and savepoints are invalidated
+                final boolean transactionalDdl = !c.getMetaData().dataDefinitionCausesTransactionCommit();
+                final var applied = appliedScripts(c);
+                final boolean baseline = applied.isEmpty() && configuration.databaseInit().baseline();
+                for (final var script : contents.entrySet()) {
+                    final var checksum = checksum(script.getValue());
+                    final var existing = applied.get(script.getKey());
+                    if (existing != null) {
+                        if (existing.equals(checksum)) {
+                            continue;
+                        }
+                        if (!configuration.devMode()) {
+                            logger.warning(() -> "Script '" + script.getKey()
+                                    + "' changed since it was applied, ignoring it, add a new script instead");
+                            continue;
+                        }
+                    }
+
+                    if (baseline) {
+                        logger.info(() -> "Baselining script '" + script.getKey() + "' (not executed)");
+                        record(c, script.getKey(), checksum, false);
+                        continue;
+                    }
+
+                    logger.info(() -> (existing == null ? "Applying" : "Re-applying changed") + " script '"
+                            + script.getKey() + "'");
+                    if (transactionalDdl) {
+                        c.setAutoCommit(false);
+                    }
+                    try {
+                        execute(c, script.getValue(), ignoreErrors, transactionalDdl);
+                        record(c, script.getKey(), checksum, existing != null);
+                        if (transactionalDdl) {
+                            c.commit();
+                        }
+                    } catch (final SQLException | RuntimeException e) {
+                        if (transactionalDdl) {
+                            c.rollback();
+                        }
+                        throw e;
+                    } finally {
+                        if (transactionalDdl) {
+                            c.setAutoCommit(true);
+                        }
+                    }
+                }
+            } finally {
+                lock.close();
+                if (!autoCommit) {
+                    c.setAutoCommit(false);
+                }
+            }
+            return null;
+        });
+    }
+
+    private boolean isDisabled(final List<String> scripts) {
         if (configuration.database().url() == null
                 || configuration.database().url().isBlank()
                 || "-".equals(configuration.database().url())) {
             if (!scripts.isEmpty()) {
-                Logger.getLogger(getClass().getName()).warning(() -> "No database url, ignoring script provisioning");
+                logger.warning(() -> "No database url, ignoring script provisioning");
             }
-            return;
+            return true;
         }
+        return false;
+    }
 
-        final var content = new StringBuilder();
-        for (final var sql : scripts) {
-            try (final var reader =
-                    new BufferedReader(new InputStreamReader(requireNonNull(findStream(sql), "no '" + sql + "'")))) {
-                content.append(reader.lines()
-                        .filter(it -> !it.isBlank() && !it.startsWith("--"))
-                        .collect(joining("\n", "", "\n")));
-            } catch (final IOException e) { // will auto rollback (see withConnection)
-                throw new IllegalStateException(e);
-            }
-        }
+    // CREATE TABLE IF NOT EXISTS is supported by both H2 and PostgreSQL
+    private void createHistoryTables() {
         transactionManager.writeSQL(c -> {
-            for (final var sql : content.toString().split("\n")) {
-                if (sql.isBlank() || sql.startsWith("--")) {
-                    continue;
+            try (final var stmt = c.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS HCMS_SCHEMA_HISTORY(SCRIPT VARCHAR(512) PRIMARY KEY, "
+                        + "CHECKSUM VARCHAR(64) NOT NULL, APPLIED_AT BIGINT NOT NULL)");
+                stmt.execute(
+                        "CREATE TABLE IF NOT EXISTS HCMS_SCHEMA_LOCK(ID INT PRIMARY KEY, LOCKED_AT BIGINT NOT NULL)");
+                if (!c.getAutoCommit()) {
+                    c.commit();
                 }
-                try (final var stmt = c.prepareStatement(sql.strip())) {
-                    stmt.execute();
-                } catch (final SQLException sqle) {
-                    if (ignoreErrors) {
-                        Logger.getLogger(getClass().getName()).log(SEVERE, sqle, sqle::getMessage);
+            } catch (final SQLException sqle) { // another instance can have created the tables concurrently
+                logger.log(FINE, sqle, () -> "Can't initialize schema history: " + sqle.getMessage());
+                if (!c.getAutoCommit()) {
+                    c.rollback();
+                }
+            }
+            return null;
+        });
+    }
+
+    // the lock is the presence of the row, its LOCKED_AT is refreshed by the holder (heartbeat) so a waiter considers
+    // it stale when it did not change during stale-lock, measured with the waiter clock to not depend on clock skews
+    private SchemaLock lock(final Connection c) throws SQLException {
+        final var init = configuration.databaseInit();
+        final long staleLock = TimeUnit.SECONDS.toNanos(init.staleLock());
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(init.lockTimeout());
+        Long observed = null;
+        long observedSince = 0;
+        while (true) {
+            final long token = System.currentTimeMillis();
+            try (final var stmt = c.prepareStatement("INSERT INTO HCMS_SCHEMA_LOCK(ID, LOCKED_AT) VALUES(1, ?)")) {
+                stmt.setLong(1, token);
+                stmt.executeUpdate();
+                return new SchemaLock(c, token, TimeUnit.SECONDS.toMillis(init.staleLock()) / 4);
+            } catch (final SQLException sqle) {
+                if (sqle.getSQLState() == null || !sqle.getSQLState().startsWith("23")) { // not a duplicate
+                    throw sqle;
+                }
+            }
+
+            final long now = System.nanoTime();
+            final var current = currentLock(c);
+            if (current == null) { // released in between
+                continue;
+            }
+            if (!current.equals(observed)) {
+                observed = current;
+                observedSince = now;
+            } else if (now - observedSince > staleLock) {
+                try (final var stmt =
+                        c.prepareStatement("DELETE FROM HCMS_SCHEMA_LOCK WHERE ID = 1 AND LOCKED_AT = ?")) {
+                    stmt.setLong(1, current);
+                    if (stmt.executeUpdate() > 0) {
+                        logger.warning("Removed a stale schema lock");
                         continue;
                     }
+                }
+            }
+            if (now - deadline > 0) {
+                throw new IllegalStateException("Can't acquire schema lock, if no instance is migrating the database "
+                        + "delete the HCMS_SCHEMA_LOCK row");
+            }
+
+            logger.info("Waiting for another instance to migrate the database");
+            try {
+                Thread.sleep(500);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private Long currentLock(final Connection c) throws SQLException {
+        try (final var stmt = c.prepareStatement("SELECT LOCKED_AT FROM HCMS_SCHEMA_LOCK WHERE ID = 1");
+                final var rset = stmt.executeQuery()) {
+            return rset.next() ? rset.getLong(1) : null;
+        }
+    }
+
+    private void record(final Connection c, final String script, final String checksum, final boolean update)
+            throws SQLException {
+        try (final var stmt = c.prepareStatement(
+                update
+                        ? "UPDATE HCMS_SCHEMA_HISTORY SET CHECKSUM = ?, APPLIED_AT = ? WHERE SCRIPT = ?"
+                        : "INSERT INTO HCMS_SCHEMA_HISTORY(CHECKSUM, APPLIED_AT, SCRIPT) VALUES(?, ?, ?)")) {
+            stmt.setString(1, checksum);
+            stmt.setLong(2, System.currentTimeMillis());
+            stmt.setString(3, script);
+            stmt.executeUpdate();
+        }
+    }
+
+    private Map<String, String> appliedScripts(final Connection c) throws SQLException {
+        final var applied = new HashMap<String, String>();
+        try (final var stmt = c.prepareStatement("SELECT SCRIPT, CHECKSUM FROM HCMS_SCHEMA_HISTORY");
+                final var rset = stmt.executeQuery()) {
+            while (rset.next()) {
+                applied.put(rset.getString(1), rset.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private void execute(
+            final Connection c, final String script, final boolean ignoreErrors, final boolean transactionalDdl)
+            throws SQLException {
+        for (final var sql : SqlScriptSplitter.split(script)) {
+            // with postgres a failing statement aborts the transaction so isolate each statement to ignore errors
+            final var savepoint = ignoreErrors && transactionalDdl ? c.setSavepoint() : null;
+            try (final var stmt = c.createStatement()) {
+                stmt.execute(sql);
+            } catch (final SQLException sqle) {
+                if (!ignoreErrors) {
                     throw sqle;
                 }
+                logger.log(SEVERE, sqle, sqle::getMessage);
+                if (savepoint != null) {
+                    c.rollback(savepoint);
+                }
+                continue;
             }
-            if (!c.getAutoCommit()) {
-                c.commit();
+            if (savepoint != null) {
+                c.releaseSavepoint(savepoint);
             }
-            return null;
-        });
+        }
+    }
+
+    private String read(final String sql) {
+        try (final var stream = requireNonNull(findStream(sql), "no '" + sql + "'")) {
+            return new String(stream.readAllBytes(), UTF_8).replace("\r\n", "\n");
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String checksum(final String content) {
+        try {
+            return HexFormat.of()
+                    .formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private InputStream findStream(final String sql) throws IOException {
@@ -125,4 +342,60 @@ public class DatabaseLoader {
 
         return null;
     }
+
+    // refreshes LOCKED_AT from its own connection since the migration one is busy executing the scripts
+    private class SchemaLock implements AutoCloseable {
+        private final Connection connection;
+        private final ScheduledExecutorService heartbeat;
+        private long token;
+        private boolean closed;
+
+        private SchemaLock(final Connection connection, final long token, final long period) {
+            this.connection = connection;
+            this.token = token;
+            this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+                final var thread = new Thread(r, DatabaseLoader.class.getName() + "-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.heartbeat.scheduleAtFixedRate(this::refresh, period, Math.max(1, period), TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void refresh() {
+            if (closed) {
+                return;
+            }
+            try {
+                final long next = Math.max(System.currentTimeMillis(), token + 1);
+                final int updated = transactionManager.writeSQL(c -> {
+                    try (final var stmt = c.prepareStatement(
+                            "UPDATE HCMS_SCHEMA_LOCK SET LOCKED_AT = ? WHERE ID = 1 AND LOCKED_AT = ?")) {
+                        stmt.setLong(1, next);
+                        stmt.setLong(2, token);
+                        return stmt.executeUpdate();
+                    }
+                });
+                if (updated > 0) {
+                    token = next;
+                } else {
+                    logger.severe("Schema lock was removed by another instance, ensure stale-lock is big enough");
+                }
+            } catch (final RuntimeException re) { // retried at next tick, stale-lock covers a few failures
+                logger.log(SEVERE, re, () -> "Can't refresh schema lock: " + re.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            heartbeat.shutdownNow();
+            synchronized (this) {
+                closed = true;
+                try (final var stmt =
+                        connection.prepareStatement("DELETE FROM HCMS_SCHEMA_LOCK WHERE ID = 1 AND LOCKED_AT = ?")) {
+                    stmt.setLong(1, token);
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
 }
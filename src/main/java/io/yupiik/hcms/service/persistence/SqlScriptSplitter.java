@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a SQL script in statements on {@code ;}, ignoring the ones in quotes (single, double and dollar ones)
+ * and in comments (comments are dropped from the statements).
+ */
+final class SqlScriptSplitter {
+    private SqlScriptSplitter() {
+        // no-op
+    }
+
+    static List<String> split(final String script) {
+        final var statements = new ArrayList<String>();
+        final var current = new StringBuilder();
+        final int length = script.length();
+        int i = 0;
+        while (i < length) {
+            final char c = script.charAt(i);
+            if (c == '-' && i + 1 < length && script.charAt(i + 1) == '-') { // line comment
+                final int end = script.indexOf('\n', i);
+                i = end < 0 ? length : end;
+            } else if (c == '/' && i + 1 < length && script.charAt(i + 1) == '*') { // block comment
+                final int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                current.append(' ');
+            } else if (c == '\'' || c == '"') { // quoted literal/identifier, doubled quote is an escape
+                int end = i + 1;
+                while (end < length) {
+                    if (script.charAt(end) == c) {
+                        if (end + 1 < length && script.charAt(end + 1) == c) {
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                end = Math.min(end + 1, length);
+                current.append(script, i, end);
+                i = end;
+            } else if (c == '$') { // postgres dollar quoting ($$ or $tag$)
+                final int tagEnd = dollarTagEnd(script, i);
+                if (tagEnd < 0) {
+                    current.append(c);
+                    i++;
+                } else {
+                    final var tag = script.substring(i, tagEnd + 1);
+                    final int close = script.indexOf(tag, tagEnd + 1);
+                    final int end = close < 0 ? length : close + tag.length();
+                    current.append(script, i, end);
+                    i = end;
+                }
+            } else if (c == ';') {
+                addStatement(statements, current);
+                i++;
+            } else {
+                current.append(c);
+                i++;
+            }
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    // returns the index of the closing $ of the tag or -1 if it is not a dollar quote (positional parameter $1 etc)
+    private static int dollarTagEnd(final String script, final int start) {
+        int i = start + 1;
+        while (i < script.length()) {
+            final char c = script.charAt(i);
+            if (c == '$') {
+                return i;
+            }
+            if (!(Character.isLetter(c) || c == '_' || (i > start + 1 && Character.isDigit(c)))) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static void addStatement(final List<String> statements, final StringBuilder current) {
+        final var statement = current.toString().strip();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+}
@@ -17,10 +17,12 @@ package io.yupiik.hcms.service.persistence;
 
 import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
 import io.yupiik.fusion.http.server.api.Request;
-import io.yupiik.fusion.persistence.api.ContextLessDatabase;
 import io.yupiik.hcms.service.persistence.entity.User;
+import io.yupiik.hcms.service.persistence.entity.UserRoles;
 import io.yupiik.hcms.service.tracing.ClientSpanService;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,50 +32,85 @@ import java.util.logging.Logger;
 public class UserRepository {
     private final Logger logger = Logger.getLogger(getClass().getName());
 
-    private final ContextLessDatabase database;
-
-    private final String findByUsername;
-    private final String findRolesByUsername;
+    private final String findWithRolesByUsername;
+    private final String updatePasswordHash;
     private final ClientSpanService spans;
 
     protected UserRepository() {
-        this.database = null;
+        this.updatePasswordHash = null;
         this.spans = null;
-        this.findByUsername = null;
-        this.findRolesByUsername = null;
+        this.findWithRolesByUsername = null;
     }
 
-    public UserRepository(final ContextLessDatabase database, final ClientSpanService spans) {
-        this.database = database;
+    public UserRepository(final ClientSpanService spans) {
         this.spans = spans;
-        this.findByUsername = database.entity(User.class).getFindAllQuery()
-                + " WHERE lower(login) = lower(?) AND ENABLED = TRUE" + " OFFSET 0 ROWS FETCH NEXT 2 ROWS ONLY";
-        this.findRolesByUsername =
-                "SELECT DISTINCT name FROM HCMS_ROLE WHERE ID in (SELECT ID FROM HCMS_USER_ROLE WHERE USER_ID = ?)";
+        // one row per role (or a single one with a null role), aggregation is done in java to stay portable
+        this.findWithRolesByUsername = "SELECT u.ID, u.LOGIN, u.FIRST_NAME, u.LAST_NAME, u.PASSWORD_HASH, u.ENABLED, r.NAME"
+                + " FROM HCMS_USER u"
+                + " LEFT JOIN HCMS_USER_ROLE ur ON ur.USER_ID = u.ID"
+                + " LEFT JOIN HCMS_ROLE r ON r.ID = ur.ROLE_ID"
+                + " WHERE lower(u.LOGIN) = lower(?) AND u.ENABLED = TRUE";
+        // ensure the hash didn't change in between to not override a concurrent password update
+        this.updatePasswordHash = "UPDATE HCMS_USER SET PASSWORD_HASH = ? WHERE ID = ? AND PASSWORD_HASH = ?";
     }
 
-    public Optional<User> findByLogin(final Request request, final Connection connection, final String login) {
-        final var matched = spans.wrap(
+    public Optional<UserRoles> findWithRolesByLogin(
+            final Request request, final Connection connection, final String login) {
+        return spans.wrap(
                 request,
-                "users.findByLogin",
-                Map.of("sql", findByUsername),
-                () -> database.query(connection, User.class, findByUsername, b -> b.bind(login)));
-        if (matched.size() > 1) {
-            logger.severe("Ambiguous user: '" + login + "'");
-            return Optional.empty();
-        }
-        if (matched.isEmpty()) {
-            return Optional.empty();
-        }
-        return Optional.of(matched.get(0));
+                "users.findWithRolesByLogin",
+                Map.of("sql", findWithRolesByUsername),
+                () -> doFindWithRolesByLogin(connection, login));
     }
 
-    public List<String> findRoleByUserId(final Request request, final Connection connection, final String userId) {
-        return spans.wrap(
-                request,
-                "users.findRoleByUserId",
-                Map.of("sql", findRolesByUsername),
-                () -> database.query(
-                        connection, findRolesByUsername, b -> b.bind(userId), r -> r.mapAll(s -> s.getString(1))));
+    public boolean updatePasswordHash(
+            final Request request,
+            final Connection connection,
+            final String userId,
+            final String expectedHash,
+            final String newHash) {
+        return spans.wrap(request, "users.updatePasswordHash", Map.of("sql", updatePasswordHash), () -> {
+            try (final var stmt = connection.prepareStatement(updatePasswordHash)) {
+                stmt.setString(1, newHash);
+                stmt.setString(2, userId);
+                stmt.setString(3, expectedHash);
+                return stmt.executeUpdate() == 1;
+            } catch (final SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private Optional<UserRoles> doFindWithRolesByLogin(final Connection connection, final String login) {
+        try (final var stmt = connection.prepareStatement(findWithRolesByUsername)) {
+            stmt.setString(1, login);
+            try (final var rset = stmt.executeQuery()) {
+                User user = null;
+                final var roles = new ArrayList<String>();
+                while (rset.next()) {
+                    final var id = rset.getString(1);
+                    if (user == null) {
+                        user = new User(
+                                id,
+                                rset.getString(2),
+                                rset.getString(3),
+                                rset.getString(4),
+                                rset.getString(5),
+                                rset.getBoolean(6));
+                    } else if (!user.id().equals(id)) {
+                        logger.severe("Ambiguous user: '" + login + "'");
+                        return Optional.empty();
+                    }
+
+                    final var role = rset.getString(7);
+                    if (role != null && !roles.contains(role)) {
+                        roles.add(role);
+                    }
+                }
+                return user == null ? Optional.empty() : Optional.of(new UserRoles(user, List.copyOf(roles)));
+            }
+        } catch (final SQLException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
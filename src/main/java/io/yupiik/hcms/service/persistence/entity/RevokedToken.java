@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.persistence.entity;
+
+import io.yupiik.fusion.framework.build.api.persistence.Column;
+import io.yupiik.fusion.framework.build.api.persistence.Id;
+import io.yupiik.fusion.framework.build.api.persistence.Table;
+
+@Table("hcms_revoked_token")
+public record RevokedToken(@Id String jti, @Column(name = "expires_at") long expiresAt) {}
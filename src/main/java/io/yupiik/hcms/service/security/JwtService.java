@@ -15,6 +15,7 @@
  */
 package io.yupiik.hcms.service.security;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.logging.Level.SEVERE;
 
 import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
@@ -25,11 +26,31 @@ import io.yupiik.fusion.jwt.JwtSignerFactory;
 import io.yupiik.fusion.jwt.JwtValidatorConfiguration;
 import io.yupiik.fusion.jwt.JwtValidatorFactory;
 import io.yupiik.hcms.configuration.HCMSConfiguration;
+import io.yupiik.hcms.service.cache.BoundedExpiringCache;
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -40,11 +61,17 @@ public class JwtService {
     private final Function<String, Jwt> validator;
     private final Function<Map<String, Object>, String> accessSigner;
     private final Function<Map<String, Object>, String> refreshSigner;
+    private final BoundedExpiringCache<String, Jwt> cache;
+    private final long tolerance;
+    private final List<Map<String, Object>> jwks;
 
     protected JwtService() {
+        this.jwks = null;
         this.validator = null;
         this.accessSigner = null;
         this.refreshSigner = null;
+        this.cache = null;
+        this.tolerance = 0;
     }
 
     public JwtService(
@@ -52,39 +79,39 @@ public class JwtService {
             final JwtSignerFactory signerFactory,
             final JwtValidatorFactory validatorFactory) {
         final var conf = configuration.security();
+        final var algorithm = conf.algorithm() == null ? "RS256" : conf.algorithm();
         var privateKey = conf.privateKey();
         var keys = conf.keys();
+        List<Map<String, Object>> generatedJwks = null;
         if (privateKey == null) {
             logger.warning(
                     () ->
                             "No private key configured, one will be generated for this instance but ensure to configure one for stability on multi-instance deployments");
-            try {
-                final var key = KeyPairGenerator.getInstance("RSA");
-                key.initialize(4_096);
-                final var keyPair = key.generateKeyPair();
-                privateKey =
-                        Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
-                if (keys == null || keys.isEmpty()) {
-                    keys = List.of(new JwtValidatorConfiguration.JwkKey(
-                            "default",
-                            "RSA",
-                            "RS256",
-                            "sig",
-                            null,
-                            null,
-                            List.of(Base64.getEncoder()
-                                    .encodeToString(keyPair.getPublic().getEncoded())),
-                            null,
-                            null,
-                            null));
-                }
-            } catch (final NoSuchAlgorithmException e) {
-                throw new IllegalStateException("can't generate a JWT key, please configure it: " + e.getMessage());
+            final var keyPair = generateKeyPair(algorithm, conf.generatedRsaKeySize());
+            privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+            if (keys == null || keys.isEmpty()) {
+                final var kty = keyPair.getPublic() instanceof ECPublicKey ? "EC" : "RSA";
+                keys = List.of(new JwtValidatorConfiguration.JwkKey(
+                        conf.kid(),
+                        kty,
+                        algorithm,
+                        "sig",
+                        null,
+                        null,
+                        List.of(Base64.getEncoder()
+                                .encodeToString(keyPair.getPublic().getEncoded())),
+                        null,
+                        null,
+                        null));
+                generatedJwks = List.of(toJwk(conf.kid(), algorithm, keyPair.getPublic()));
             }
         }
+        this.jwks = generatedJwks != null
+                ? generatedJwks
+                : (keys == null ? List.of() : keys.stream().map(this::toJwk).toList());
 
         this.accessSigner = signerFactory.newJwtFactory(new JwtSignerConfiguration(
-                privateKey, conf.algorithm(), conf.issuer(), conf.kid(), true, conf.accessValidity(), true, true));
+                privateKey, algorithm, conf.issuer(), conf.kid(), true, conf.accessValidity(), true, true));
         this.validator = validatorFactory.newValidator(new JwtValidatorConfiguration(
                 "",
                 "", // ignore default key, just rely on conf.keys()
@@ -98,30 +125,238 @@ public class JwtService {
         this.refreshSigner = conf.refreshValidity() == conf.accessValidity()
                 ? accessSigner
                 : signerFactory.newJwtFactory(new JwtSignerConfiguration(
-                        conf.privateKey(),
-                        conf.algorithm(),
+                        privateKey,
+                        algorithm,
                         conf.issuer(),
                         conf.kid(),
                         true,
                         conf.refreshValidity(),
                         true,
                         true));
+        this.cache = new BoundedExpiringCache<>(conf.jwtCacheSize());
+        this.tolerance = TimeUnit.SECONDS.toMillis(conf.tolerance());
+    }
+
+    /**
+     * @return the public keys (JWK) usable to validate the tokens this instance forges.
+     */
+    public List<Map<String, Object>> jwks() {
+        return jwks;
     }
 
     public String forgeAccessToken(final Map<String, Object> data) {
-        return accessSigner.apply(data);
+        return accessSigner.apply(withJti(data));
     }
 
     public String forgeRefreshToken(final Map<String, Object> data) {
-        return refreshSigner.apply(data);
+        return refreshSigner.apply(withJti(data));
     }
 
     public Jwt verify(final String jwt) {
+        final var key = cache.isEnabled() ? digest(jwt) : null;
+        if (key != null) {
+            final var cached = cache.get(key);
+            if (cached != null) { // already validated, no need to redo the crypto
+                return cached;
+            }
+        }
+
+        final Jwt validated;
         try {
-            return validator.apply(jwt);
+            validated = validator.apply(jwt);
         } catch (final RuntimeException re) {
             logger.log(SEVERE, re, () -> "Can't verify the JWT '" + jwt + "': " + re.getMessage());
             throw new JsonRpcException(401, "unauthenticated_request");
         }
+
+        if (key != null) {
+            final long expiresAt = expiresAt(validated);
+            if (expiresAt > 0) {
+                // evict it a bit before the actual expiry to never serve a token the validator would reject
+                cache.put(key, validated, expiresAt - tolerance);
+            }
+        }
+        return validated;
+    }
+
+    /**
+     * @param jwt the token to read the expiration date from.
+     * @return the expiration date in epoch milliseconds or {@code -1} if there is none.
+     */
+    public long expiresAt(final Jwt jwt) {
+        return jwt.claim("exp", Object.class)
+                .map(exp -> {
+                    if (exp instanceof Number n) {
+                        return TimeUnit.SECONDS.toMillis(n.longValue());
+                    }
+                    try {
+                        return TimeUnit.SECONDS.toMillis(Long.parseLong(exp.toString()));
+                    } catch (final NumberFormatException nfe) {
+                        return -1L;
+                    }
+                })
+                .orElse(-1L);
+    }
+
+    // we don't keep the token itself as key in memory, just a digest
+    private String digest(final String jwt) {
+        try {
+            return Base64.getEncoder()
+                    .encodeToString(MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(UTF_8)));
+        } catch (final NoSuchAlgorithmException e) { // unlikely, SHA-256 is mandatory for any JVM
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // unique token identifier, enables to revoke a token
+    private Map<String, Object> withJti(final Map<String, Object> data) {
+        if (data.containsKey("jti")) {
+            return data;
+        }
+        final var copy = new HashMap<>(data);
+        copy.put("jti", UUID.randomUUID().toString());
+        return copy;
+    }
+
+    private KeyPair generateKeyPair(final String algorithm, final int rsaKeySize) {
+        try {
+            if (algorithm.startsWith("ES")) {
+                final var generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec(
+                        switch (algorithm) {
+                            case "ES256" -> "secp256r1";
+                            case "ES384" -> "secp384r1";
+                            case "ES512" -> "secp521r1";
+                            default -> throw new IllegalArgumentException("Unsupported algorithm: '" + algorithm + "'");
+                        }));
+                return generator.generateKeyPair();
+            }
+            if (algorithm.startsWith("RS")) {
+                final var generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(rsaKeySize);
+                return generator.generateKeyPair();
+            }
+            throw new IllegalArgumentException(
+                    "Can't generate a key for algorithm '" + algorithm + "', please configure the private key");
+        } catch (final NoSuchAlgorithmException | InvalidAlgorithmParameterException e) {
+            throw new IllegalStateException("can't generate a JWT key, please configure it: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> toJwk(final String kid, final String algorithm, final PublicKey key) {
+        final var encoder = Base64.getUrlEncoder().withoutPadding();
+        final var jwk = new TreeMap<String, Object>();
+        jwk.put("kid", kid);
+        jwk.put("alg", algorithm);
+        jwk.put("use", "sig");
+        if (key instanceof ECPublicKey ec) {
+            final int size = (ec.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+            jwk.put("kty", "EC");
+            jwk.put(
+                    "crv",
+                    switch (size) {
+                        case 32 -> "P-256";
+                        case 48 -> "P-384";
+                        default -> "P-521";
+                    });
+            jwk.put("x", encoder.encodeToString(unsigned(ec.getW().getAffineX(), size)));
+            jwk.put("y", encoder.encodeToString(unsigned(ec.getW().getAffineY(), size)));
+        } else if (key instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", encoder.encodeToString(unsigned(rsa.getModulus(), (rsa.getModulus().bitLength() + 7) / 8)));
+            jwk.put(
+                    "e",
+                    encoder.encodeToString(
+                            unsigned(rsa.getPublicExponent(), (rsa.getPublicExponent().bitLength() + 7) / 8)));
+        }
+        return jwk;
+    }
+
+    private Map<String, Object> toJwk(final JwtValidatorConfiguration.JwkKey key) {
+        final var jwk = new TreeMap<String, Object>();
+        if (key.kid() != null) {
+            jwk.put("kid", key.kid());
+        }
+        if (key.kty() != null) {
+            jwk.put("kty", key.kty());
+        }
+        if (key.alg() != null) {
+            jwk.put("alg", key.alg());
+        }
+        if (key.use() != null) {
+            jwk.put("use", key.use());
+        }
+        if (key.n() != null) {
+            jwk.put("n", key.n());
+        }
+        if (key.e() != null) {
+            jwk.put("e", key.e());
+        }
+        if (key.crv() != null) {
+            jwk.put("crv", key.crv());
+        }
+        if (key.x() != null) {
+            jwk.put("x", key.x());
+        }
+        if (key.y() != null) {
+            jwk.put("y", key.y());
+        }
+        if (key.x5c() != null && !key.x5c().isEmpty()) {
+            // x5c must be a certificate chain (RFC 7517), a plain public key is only published as its parameters
+            final var certificate = toCertificate(key.x5c().getFirst());
+            if (certificate != null) {
+                jwk.put("x5c", key.x5c());
+            }
+            final var publicKey =
+                    certificate != null ? certificate.getPublicKey() : toPublicKey(key.kty(), key.x5c().getFirst());
+            if (publicKey != null) {
+                final var derived = toJwk(key.kid(), key.alg(), publicKey);
+                for (final var name : List.of("kty", "crv", "x", "y", "n", "e")) {
+                    if (!jwk.containsKey(name) && derived.get(name) != null) {
+                        jwk.put(name, derived.get(name));
+                    }
+                }
+            }
+        }
+        return jwk;
+    }
+
+    private Certificate toCertificate(final String x5c) {
+        try {
+            return CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(der(x5c)));
+        } catch (final CertificateException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private PublicKey toPublicKey(final String kty, final String x5c) {
+        try {
+            return KeyFactory.getInstance(kty == null ? "RSA" : kty)
+                    .generatePublic(new X509EncodedKeySpec(der(x5c)));
+        } catch (final NoSuchAlgorithmException | InvalidKeySpecException | IllegalArgumentException e) {
+            logger.warning(() -> "Can't read configured x5c public key: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // tolerate a PEM armor since configurations often copy the key/certificate file content
+    private byte[] der(final String x5c) {
+        return Base64.getMimeDecoder().decode(x5c.replaceAll("-----[^-]+-----", ""));
+    }
+
+    // big integers are signed so can have a leading zero or be shorter than the expected size
+    private byte[] unsigned(final BigInteger value, final int size) {
+        final var bytes = value.toByteArray();
+        if (bytes.length == size) {
+            return bytes;
+        }
+        final var out = new byte[size];
+        if (bytes.length > size) {
+            System.arraycopy(bytes, bytes.length - size, out, 0, size);
+        } else {
+            System.arraycopy(bytes, 0, out, size - bytes.length, bytes.length);
+        }
+        return out;
     }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.security;
+
+import static java.util.Locale.ROOT;
+
+import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
+import io.yupiik.fusion.http.server.api.Request;
+import io.yupiik.fusion.jsonrpc.JsonRpcException;
+import io.yupiik.hcms.configuration.HCMSConfiguration;
+import io.yupiik.hcms.jsonrpc.model.ErrorMessage;
+import jakarta.servlet.http.HttpServletRequest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits login attempts per login and per client IP on a sliding window.
+ * Keys are hashed (with a per instance seed) on a fixed number of slots so memory is bounded (collisions only make
+ * the limit stricter) and counters are plain atomics so there is no lock on the login path.
+ * A successful login resets its login counter, a {@code 0} limit disables the related check.
+ */
+@ApplicationScoped
+public class LoginThrottler {
+    private static final int BUCKETS = 6;
+
+    private final HCMSConfiguration.LoginThrottlingConfiguration configuration;
+    private final SlidingWindowCounter perLogin;
+    private final SlidingWindowCounter perIp;
+
+    public LoginThrottler(final HCMSConfiguration configuration) {
+        this.configuration = configuration == null ? null : configuration.security().loginThrottling();
+        if (this.configuration == null || !this.configuration.enabled()) {
+            this.perLogin = null;
+            this.perIp = null;
+            return;
+        }
+
+        final long bucketDuration = Math.max(1, TimeUnit.SECONDS.toMillis(this.configuration.window()) / BUCKETS);
+        final int slots = Integer.highestOneBit(Math.max(1, this.configuration.slots()) * 2 - 1); // power of 2
+        this.perLogin =
+                this.configuration.maxAttemptsPerLogin() > 0 ? new SlidingWindowCounter(slots, bucketDuration) : null;
+        this.perIp =
+                this.configuration.maxAttemptsPerIp() > 0 ? new SlidingWindowCounter(slots, bucketDuration) : null;
+    }
+
+    /**
+     * Registers a login attempt and fails if there were too many attempts recently.
+     *
+     * @param request the incoming request (to extract client IP).
+     * @param login   the login used.
+     */
+    public void onAttempt(final Request request, final String login) {
+        if (perLogin == null && perIp == null) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (perIp != null) {
+            final var ip = clientIp(request);
+            if (ip != null && perIp.incrementAndGet(ip, now) > configuration.maxAttemptsPerIp()) {
+                throw tooManyAttempts();
+            }
+        }
+        if (perLogin != null
+                && login != null
+                && perLogin.incrementAndGet(login.toLowerCase(ROOT), now) > configuration.maxAttemptsPerLogin()) {
+            throw tooManyAttempts();
+        }
+    }
+
+    /**
+     * Resets the attempts of a login after a successful authentication.
+     *
+     * @param login the login used.
+     */
+    public void onSuccess(final String login) {
+        if (perLogin != null && login != null) {
+            perLogin.reset(login.toLowerCase(ROOT));
+        }
+    }
+
+    // the client controls the leftmost values so only trust the ones appended by our proxies
+    private String clientIp(final Request request) {
+        if (configuration.trustedProxies() > 0
+                && configuration.ipHeader() != null
+                && !configuration.ipHeader().isBlank()) {
+            final var header = request.header(configuration.ipHeader());
+            if (header != null && !header.isBlank()) {
+                final var values = header.split(",");
+                final var value = values[Math.max(0, values.length - configuration.trustedProxies())].strip();
+                if (!value.isEmpty()) {
+                    return value;
+                }
+            }
+        }
+        try {
+            return request.unwrap(HttpServletRequest.class).getRemoteAddr();
+        } catch (final RuntimeException re) { // not a servlet request (tests)
+            return null;
+        }
+    }
+
+    private JsonRpcException tooManyAttempts() {
+        return new JsonRpcException(
+                429,
+                "Too many login attempts, retry later.",
+                new ErrorMessage("too_many_attempts", "Too many login attempts, retry later."),
+                null);
+    }
+
+    /**
+     * Ring of {@link #BUCKETS} time buckets per slot, a bucket is lazily reset when its epoch is outdated.
+     */
+    private static class SlidingWindowCounter {
+        private final int mask;
+        private final long bucketDuration;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray epochs;
+        private final int seed = new SecureRandom().nextInt();
+
+        private SlidingWindowCounter(final int slots, final long bucketDuration) {
+            this.mask = slots - 1;
+            this.bucketDuration = bucketDuration;
+            this.counts = new AtomicLongArray(slots * BUCKETS);
+            this.epochs = new AtomicLongArray(slots * BUCKETS);
+        }
+
+        private void reset(final String key) {
+            final int base = slot(key);
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(base + i, 0);
+            }
+        }
+
+        private long incrementAndGet(final String key, final long now) {
+            final int base = slot(key);
+            final long epoch = now / bucketDuration;
+            final int current = base + (int) (epoch % BUCKETS);
+
+            final long currentEpoch = epochs.get(current);
+            if (currentEpoch != epoch && epochs.compareAndSet(current, currentEpoch, epoch)) {
+                counts.set(current, 0); // a concurrent increment can be lost there, it is fine for a limiter
+            }
+
+            long total = counts.incrementAndGet(current);
+            for (int i = 0; i < BUCKETS; i++) {
+                final int index = base + i;
+                if (index != current && epoch - epochs.get(index) < BUCKETS) {
+                    total += counts.get(index);
+                }
+            }
+            return total;
+        }
+
+        // seeded so colliding keys can't be crafted from String.hashCode() to lock out another login
+        private int slot(final String key) {
+            int hash = seed;
+            for (int i = 0; i < key.length(); i++) {
+                hash = (hash ^ key.charAt(i)) * 0x01000193;
+            }
+            hash ^= hash >>> 15;
+            hash *= 0x2c1b3c6d;
+            hash ^= hash >>> 12;
+            return (hash & mask) * BUCKETS;
+        }
+    }
+}
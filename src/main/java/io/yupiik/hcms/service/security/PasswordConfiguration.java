@@ -30,4 +30,22 @@ public record PasswordConfiguration(
                         defaultValue = "16")
                 int saltLength,
         @Property(documentation = "Algorithm to use for password hashing.", defaultValue = "\"PBKDF2WithHmacSHA256\"")
-                String algorithm) {}
+                String algorithm,
+        @Property(
+                        value = "hashing-threads",
+                        documentation =
+                                "Number of threads dedicated to password hashing (login), `0` means half of the available processors.",
+                        defaultValue = "0")
+                int hashingThreads,
+        @Property(
+                        value = "hashing-queue-size",
+                        documentation =
+                                "Max number of pending password hashing tasks, when reached logins are rejected with a 503 error.",
+                        defaultValue = "64")
+                int hashingQueueSize,
+        @Property(
+                        value = "rehash-on-login",
+                        documentation =
+                                "Should password hashes computed with other parameters (iterations, algorithm, ...) be updated on successful login. It enables to tune hashing without any migration.",
+                        defaultValue = "true")
+                boolean rehashOnLogin) {}
@@ -20,7 +20,12 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 
@@ -31,6 +36,9 @@ public class PasswordEncoder {
     private final Base64.Encoder encoder = Base64.getEncoder();
     private final Base64.Decoder decoder = Base64.getDecoder();
 
+    // SecretKeyFactory is not thread safe but its lookup is costly so we pool instances per algorithm
+    private final Map<String, Queue<SecretKeyFactory>> factories = new ConcurrentHashMap<>();
+
     public PasswordEncoder(final PasswordConfiguration configuration) {
         this.configuration = configuration;
     }
@@ -39,9 +47,8 @@ public class PasswordEncoder {
         final var salt = new byte[configuration.saltLength()];
         random.nextBytes(salt);
         try {
-            final var spec =
-                    new PBEKeySpec(password.toCharArray(), salt, configuration.iterations(), configuration.keyLength());
-            final var key = encode(spec, configuration.algorithm());
+            final var key = encode(
+                    password, salt, configuration.iterations(), configuration.keyLength(), configuration.algorithm());
             return String.join(
                     ";",
                     "1", // version
@@ -56,46 +63,100 @@ public class PasswordEncoder {
     }
 
     public boolean matches(final String clear, final String database) {
-        if (!database.startsWith("1;")) { // not supported version
+        final var stored = parse(database);
+        if (stored == null) {
             return false;
         }
 
+        try {
+            return MessageDigest.isEqual(
+                    stored.hash(),
+                    encode(clear, stored.salt(), stored.iterations(), stored.keyLength(), stored.algorithm()));
+        } catch (final RuntimeException | NoSuchAlgorithmException | InvalidKeySpecException re) {
+            return false;
+        }
+    }
+
+    /**
+     * @param database the stored password hash.
+     * @return {@code true} if the hash was not computed with the current configuration (iterations, algorithm, ...).
+     */
+    public boolean needsRehash(final String database) {
+        final var stored = parse(database);
+        return stored == null
+                || !configuration.algorithm().equals(stored.algorithm())
+                || configuration.iterations() != stored.iterations()
+                || configuration.keyLength() != stored.keyLength()
+                || configuration.saltLength() != stored.salt().length;
+    }
+
+    /**
+     * @param clear    the clear password, it must have been validated against {@code database} before.
+     * @param database the stored password hash.
+     * @return the new hash to store if rehashing on login is enabled and the stored one is outdated,
+     * {@code null} otherwise.
+     */
+    public String rehashIfNeeded(final String clear, final String database) {
+        if (!configuration.rehashOnLogin() || !needsRehash(database)) {
+            return null;
+        }
+        return toDatabase(clear);
+    }
+
+    private StoredHash parse(final String database) {
+        if (database == null || !database.startsWith("1;")) { // not supported version
+            return null;
+        }
+
         try {
             final int algoEnd = database.indexOf(';', 2);
             if (algoEnd < 0) {
-                return false;
+                return null;
             }
             final var algo = database.substring(2, algoEnd);
 
             final int iterationsEnd = database.indexOf(';', algoEnd + 1);
             if (iterationsEnd < 0) {
-                return false;
+                return null;
             }
             final int iterations = Integer.parseInt(database.substring(algoEnd + 1, iterationsEnd));
 
             final int keyLengthEnd = database.indexOf(';', iterationsEnd + 1);
             if (keyLengthEnd < 0) {
-                return false;
+                return null;
             }
             final int keyLength = Integer.parseInt(database.substring(iterationsEnd + 1, keyLengthEnd));
 
             final int saltEnd = database.indexOf(';', keyLengthEnd + 1);
             if (saltEnd < 0) {
-                return false;
+                return null;
             }
             final var salt = decoder.decode(database.substring(keyLengthEnd + 1, saltEnd));
             final var hash = decoder.decode(database.substring(saltEnd + 1));
-
-            return MessageDigest.isEqual(
-                    hash, encode(new PBEKeySpec(clear.toCharArray(), salt, iterations, keyLength), algo));
-        } catch (final RuntimeException | NoSuchAlgorithmException | InvalidKeySpecException re) {
-            return false;
+            return new StoredHash(algo, iterations, keyLength, salt, hash);
+        } catch (final RuntimeException re) {
+            return null;
         }
     }
 
-    private byte[] encode(final PBEKeySpec spec, final String algorithm)
+    private byte[] encode(
+            final String password, final byte[] salt, final int iterations, final int keyLength, final String algorithm)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
-        final var skf = SecretKeyFactory.getInstance(algorithm);
-        return skf.generateSecret(spec).getEncoded();
+        final var chars = password.toCharArray();
+        final var spec = new PBEKeySpec(chars, salt, iterations, keyLength);
+        final var pool = factories.computeIfAbsent(algorithm, k -> new ConcurrentLinkedQueue<>());
+        var factory = pool.poll();
+        if (factory == null) {
+            factory = SecretKeyFactory.getInstance(algorithm);
+        }
+        try {
+            return factory.generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+            pool.offer(factory);
+        }
     }
+
+    private record StoredHash(String algorithm, int iterations, int keyLength, byte[] salt, byte[] hash) {}
 }
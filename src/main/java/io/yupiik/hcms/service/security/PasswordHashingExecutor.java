@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.security;
+
+import static java.util.concurrent.CompletableFuture.failedFuture;
+
+import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
+import io.yupiik.fusion.framework.build.api.lifecycle.Destroy;
+import io.yupiik.fusion.jsonrpc.JsonRpcException;
+import io.yupiik.fusion.observability.metrics.MetricsRegistry;
+import io.yupiik.hcms.jsonrpc.model.ErrorMessage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Password hashing is CPU bound (PBKDF2) so it runs in a dedicated bounded pool to not starve other requests
+ * when a lot of logins happen at the same time. When the queue is full, the task is rejected immediately.
+ */
+@ApplicationScoped
+public class PasswordHashingExecutor {
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
+    private final LongAdder hashTime = new LongAdder();
+
+    public PasswordHashingExecutor(final PasswordConfiguration configuration, final MetricsRegistry metrics) {
+        if (configuration == null) { // subclass case
+            this.executor = null;
+            return;
+        }
+
+        final int threads = configuration.hashingThreads() > 0
+                ? configuration.hashingThreads()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        final var counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, configuration.hashingQueueSize())),
+                r -> {
+                    final var thread = new Thread(
+                            r, PasswordHashingExecutor.class.getName() + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        metrics.registerReadOnlyGauge("password_hashing_queue_size", "unit", executor.getQueue()::size);
+        metrics.registerReadOnlyGauge("password_hashing_active_count", "unit", executor::getActiveCount);
+        metrics.registerReadOnlyGauge("password_hashing_completed_count", "unit", executor::getCompletedTaskCount);
+        metrics.registerReadOnlyGauge("password_hashing_rejected_count", "unit", rejected::sum);
+        metrics.registerReadOnlyGauge("password_hashing_wait_time_total", "ms", waitTime::sum);
+        metrics.registerReadOnlyGauge("password_hashing_time_total", "ms", hashTime::sum);
+    }
+
+    public <T> CompletionStage<T> submit(final Supplier<T> task) {
+        final var result = new CompletableFuture<T>();
+        final long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                final long start = System.nanoTime();
+                waitTime.add(TimeUnit.NANOSECONDS.toMillis(start - submittedAt));
+                try {
+                    result.complete(task.get());
+                } catch (final RuntimeException re) {
+                    result.completeExceptionally(re);
+                } finally {
+                    hashTime.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            });
+        } catch (final RejectedExecutionException ree) {
+            rejected.increment();
+            return failedFuture(new JsonRpcException(
+                    503,
+                    "Too many concurrent authentications, retry later.",
+                    new ErrorMessage("unavailable", "Too many concurrent authentications, retry later."),
+                    null));
+        }
+        return result;
+    }
+
+    @Destroy
+    protected void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -17,21 +17,38 @@ package io.yupiik.hcms.service.security;
 
 import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
 import io.yupiik.fusion.framework.build.api.lifecycle.Init;
+import io.yupiik.fusion.http.server.api.Request;
 import io.yupiik.fusion.jsonrpc.JsonRpcException;
 import io.yupiik.fusion.jsonrpc.impl.JsonRpcMethod;
 import io.yupiik.fusion.jwt.Jwt;
+import io.yupiik.hcms.configuration.HCMSConfiguration;
+import io.yupiik.hcms.service.cache.BoundedExpiringCache;
 import io.yupiik.hcms.service.model.json.Model;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @ApplicationScoped
 public class SecurityHandler {
     private final JsonRpcException unauthenticated = new JsonRpcException(401, "Missing authorization header");
     private final JwtService jwts;
+    private final TokenRevocationService revocations;
 
-    public SecurityHandler(final JwtService jwts) {
+    // dense index of the roles used in the model so role checks are just a bitwise operation
+    private final Map<String, Integer> roleIndex = new ConcurrentHashMap<>();
+    private final BoundedExpiringCache<Jwt, RoleMask> roleMasks;
+
+    public SecurityHandler(
+            final HCMSConfiguration configuration,
+            final JwtService jwts,
+            final TokenRevocationService revocations) {
         this.jwts = jwts;
+        this.revocations = revocations;
+        this.roleMasks =
+                new BoundedExpiringCache<>(configuration == null ? 0 : configuration.security().jwtCacheSize());
     }
 
     @Init
@@ -64,39 +81,88 @@ public class SecurityHandler {
         }
 
         // implicit logged for role requirement
+        final var required = new BitSet();
+        requiredRoles.forEach(role -> required.set(roleIndex(role)));
         return ctx -> {
-            @SuppressWarnings("unchecked")
-            final var jwtRoles = loadJwt(ctx)
-                    .claim("roles", Object.class)
-                    .filter(roles -> roles instanceof List<?>)
-                    .map(roles -> {
-                        try {
-                            return (List<String>) roles;
-                        } catch (final ClassCastException cce) {
-                            return List.of();
-                        }
-                    })
-                    .orElseThrow(() -> new JsonRpcException(403, "Invalid authorization header"));
-            if (requiredRoles.stream().noneMatch(jwtRoles::contains)) {
+            if (!loadRoles(ctx).intersects(required)) {
                 throw new JsonRpcException(403, "Invalid authorization header");
             }
             return impl.apply(ctx);
         };
     }
 
-    private Jwt loadJwt(final JsonRpcMethod.Context ctx) {
-        final var alreadyValidated = ctx.request().attribute(Jwt.class.getName(), Jwt.class);
+    private int roleIndex(final String role) {
+        final var existing = roleIndex.get(role);
+        if (existing != null) {
+            return existing;
+        }
+        // the index is the map size when the role is added so a published size always covers published roles
+        synchronized (roleIndex) {
+            return roleIndex.computeIfAbsent(role, k -> roleIndex.size());
+        }
+    }
+
+    private BitSet loadRoles(final JsonRpcMethod.Context ctx) {
+        final var jwt = loadJwt(ctx);
+        final int knownRoles = roleIndex.size();
+
+        final var fromRequest = ctx.request().attribute(RoleMask.class.getName(), RoleMask.class);
+        if (fromRequest != null && fromRequest.knownRoles() == knownRoles) {
+            return fromRequest.roles();
+        }
+
+        var mask = roleMasks.get(jwt);
+        if (mask == null || mask.knownRoles() != knownRoles) { // new roles can have been registered (reload)
+            mask = new RoleMask(knownRoles, toBitSet(jwt));
+            roleMasks.put(jwt, mask, jwts.expiresAt(jwt));
+        }
+        ctx.request().setAttribute(RoleMask.class.getName(), mask);
+        return mask.roles();
+    }
+
+    private BitSet toBitSet(final Jwt jwt) {
+        final var roles = jwt.claim("roles", Object.class)
+                .filter(it -> it instanceof List<?>)
+                .map(it -> (List<?>) it)
+                .orElseThrow(() -> new JsonRpcException(403, "Invalid authorization header"));
+        final var bitSet = new BitSet();
+        for (final var role : roles) {
+            if (role instanceof String name) {
+                final var index = roleIndex.get(name);
+                if (index != null) { // unknown roles can't match any method
+                    bitSet.set(index);
+                }
+            }
+        }
+        return bitSet;
+    }
+
+    /**
+     * @param request the incoming request.
+     * @return the validated (and not revoked) JWT of the request.
+     */
+    public Jwt authenticated(final Request request) {
+        final var alreadyValidated = request.attribute(Jwt.class.getName(), Jwt.class);
         if (alreadyValidated != null) { // don't do crypto N times!
             return alreadyValidated;
         }
 
-        final var authorization = ctx.request().header("authorization");
+        final var authorization = request.header("authorization");
         if (authorization == null || !authorization.startsWith("Bearer ")) {
             throw unauthenticated;
         }
 
         final var jwt = jwts.verify(authorization.substring("Bearer ".length()));
-        ctx.request().setAttribute(Jwt.class.getName(), jwt);
+        if (revocations.isRevoked(jwt.claim("jti", String.class).orElse(null))) {
+            throw new JsonRpcException(401, "Revoked token");
+        }
+        request.setAttribute(Jwt.class.getName(), jwt);
         return jwt;
     }
+
+    private Jwt loadJwt(final JsonRpcMethod.Context ctx) {
+        return authenticated(ctx.request());
+    }
+
+    private record RoleMask(int knownRoles, BitSet roles) {}
 }
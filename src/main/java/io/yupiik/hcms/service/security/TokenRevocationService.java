@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.security;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.logging.Level.SEVERE;
+
+import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
+import io.yupiik.fusion.framework.build.api.lifecycle.Destroy;
+import io.yupiik.fusion.framework.build.api.lifecycle.Init;
+import io.yupiik.fusion.jsonrpc.JsonRpcException;
+import io.yupiik.fusion.persistence.api.ContextLessDatabase;
+import io.yupiik.fusion.persistence.api.TransactionManager;
+import io.yupiik.hcms.configuration.HCMSConfiguration;
+import io.yupiik.hcms.service.cache.BloomFilter;
+import io.yupiik.hcms.service.persistence.entity.RevokedToken;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Logger;
+
+/**
+ * Keeps in memory the revoked (not yet expired) token identifiers ({@code jti}).
+ * The database is the source of truth (to share revocations between instances) and is polled periodically,
+ * the request path only does in memory lookups.
+ */
+@ApplicationScoped
+public class TokenRevocationService {
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private final HCMSConfiguration configuration;
+    private final TransactionManager transactionManager;
+    private final ContextLessDatabase database;
+
+    // revoked by this instance and not yet seen in a snapshot
+    private final Map<String, Long> local = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(new BloomFilter(List.of(), 0.01), Set.of());
+    private volatile boolean available;
+    private volatile boolean warned;
+    private ScheduledExecutorService scheduler;
+
+    public TokenRevocationService(
+            final HCMSConfiguration configuration,
+            final TransactionManager transactionManager,
+            final ContextLessDatabase database) {
+        this.configuration = configuration;
+        this.transactionManager = transactionManager;
+        this.database = database;
+    }
+
+    @Init
+    protected void init() {
+        final var url = configuration.database().url();
+        if (url == null || url.isBlank() || "-".equals(url)) {
+            return;
+        }
+
+        refresh();
+
+        final long interval = configuration.security().revocationRefreshInterval();
+        if (interval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                final var thread = new Thread(r, TokenRevocationService.class.getName() + "-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, SECONDS);
+        }
+    }
+
+    @Destroy
+    protected void destroy() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    public boolean isRevoked(final String jti) {
+        if (jti == null) {
+            return false;
+        }
+        if (!local.isEmpty() && local.containsKey(jti)) {
+            return true;
+        }
+        final var current = snapshot;
+        return current.filter().mightContain(jti) && current.revoked().contains(jti);
+    }
+
+    /**
+     * @param jti       token identifier.
+     * @param expiresAt token expiration (epoch millis), after that date the revocation is no more needed.
+     */
+    public void revoke(final String jti, final long expiresAt) {
+        if (!available) { // retry in case the table was created after the startup
+            refresh();
+            if (!available) {
+                throw new JsonRpcException(503, "Token revocation is not available, ensure HCMS_REVOKED_TOKEN exists");
+            }
+        }
+        if (expiresAt <= System.currentTimeMillis() || isRevoked(jti)) {
+            return;
+        }
+
+        try {
+            transactionManager.writeSQL(c -> {
+                // purge there instead of in the polling to not have all instances deleting the same rows
+                try (final var stmt = c.prepareStatement("DELETE FROM HCMS_REVOKED_TOKEN WHERE EXPIRES_AT <= ?")) {
+                    stmt.setLong(1, System.currentTimeMillis());
+                    stmt.executeUpdate();
+                }
+                return database.insert(c, new RevokedToken(jti, expiresAt));
+            });
+        } catch (final RuntimeException re) {
+            if (!isDuplicate(re)) {
+                throw re;
+            }
+            logger.finest(() -> "Token '" + jti + "' already revoked by another instance");
+        }
+        local.put(jti, expiresAt);
+    }
+
+    // integrity constraint violation class (SQL state 23xxx), the jti is the primary key
+    private boolean isDuplicate(final Throwable error) {
+        for (var current = error; current != null; current = current.getCause()) {
+            if (current instanceof SQLException sqle
+                    && sqle.getSQLState() != null
+                    && sqle.getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refresh() {
+        final long now = System.currentTimeMillis();
+        try {
+            final var revoked = transactionManager.readSQL(c -> database.query(
+                    c,
+                    "SELECT JTI FROM HCMS_REVOKED_TOKEN WHERE EXPIRES_AT > ?",
+                    b -> b.bind(now),
+                    r -> r.mapAll(s -> s.getString(1))));
+            snapshot = new Snapshot(new BloomFilter(revoked, 0.01), Set.copyOf(revoked));
+            local.entrySet().removeIf(e -> e.getValue() <= now || snapshot.revoked().contains(e.getKey()));
+            available = true;
+        } catch (final RuntimeException re) {
+            if (available) {
+                logger.log(SEVERE, re, () -> "Can't refresh revoked tokens: " + re.getMessage());
+            } else if (!warned) {
+                warned = true;
+                logger.warning(() -> "Token revocation not available (missing HCMS_REVOKED_TOKEN table?): "
+                        + re.getMessage());
+            }
+        }
+    }
+
+    private record Snapshot(BloomFilter filter, Set<String> revoked) {}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.security;
+
+import static java.util.Locale.ROOT;
+
+import io.yupiik.fusion.framework.api.scope.ApplicationScoped;
+import io.yupiik.hcms.configuration.HCMSConfiguration;
+import io.yupiik.hcms.service.cache.BoundedExpiringCache;
+import io.yupiik.hcms.service.persistence.entity.UserRoles;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short lived cache of users (and their roles) for login/refresh.
+ * Missing users are cached too (as an empty optional) for a shorter duration to not hit the database
+ * on brute force attempts.
+ */
+@ApplicationScoped
+public class UserCache {
+    private final BoundedExpiringCache<String, Optional<UserRoles>> cache;
+    private final long ttl;
+    private final long negativeTtl;
+
+    protected UserCache() {
+        this.cache = null;
+        this.ttl = 0;
+        this.negativeTtl = 0;
+    }
+
+    public UserCache(final HCMSConfiguration configuration) {
+        final var conf = configuration.security();
+        this.ttl = TimeUnit.SECONDS.toMillis(conf.userCacheTtl());
+        this.negativeTtl = TimeUnit.SECONDS.toMillis(conf.userNegativeCacheTtl());
+        this.cache = new BoundedExpiringCache<>(ttl > 0 ? conf.userCacheSize() : 0);
+    }
+
+    /**
+     * @param login the user login.
+     * @return {@code null} if the user is not cached, an empty optional if the user is known to not exist,
+     * the user otherwise.
+     */
+    public Optional<UserRoles> get(final String login) {
+        return cache.get(login.toLowerCase(ROOT));
+    }
+
+    public void put(final String login, final Optional<UserRoles> user) {
+        final long duration = user.isPresent() ? ttl : negativeTtl;
+        if (duration > 0) {
+            cache.put(login.toLowerCase(ROOT), user, System.currentTimeMillis() + duration);
+        }
+    }
+
+    public void invalidate(final String login) {
+        cache.remove(login.toLowerCase(ROOT));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -7,6 +7,9 @@ CREATE TABLE HCMS_USER_ROLE(USER_ID VARCHAR(36), ROLE_ID VARCHAR(36), PRIMARY KE
 -- CREATE INDEX IDX_U_LOGIN ON HCMS_USER ((lower(LOGIN)));
 CREATE INDEX IDX_HCMSU_LLOGIN ON HCMS_USER (LOGIN);
 CREATE INDEX IDX_HCMSR_NAME ON HCMS_ROLE (NAME);
+CREATE INDEX IDX_HCMSUR_ROLE ON HCMS_USER_ROLE (ROLE_ID);
+CREATE TABLE HCMS_REVOKED_TOKEN(JTI VARCHAR(64) PRIMARY KEY, EXPIRES_AT BIGINT NOT NULL);
+CREATE INDEX IDX_HCMSRT_EXPIRES_AT ON HCMS_REVOKED_TOKEN (EXPIRES_AT);
 
 -- clear=@dm1n!
 INSERT INTO HCMS_USER(ID, LOGIN, FIRST_NAME, LAST_NAME, PASSWORD_HASH, ENABLED) VALUES('admin', 'admin@app.com', 'admin', 'admin', '1;PBKDF2WithHmacSHA256;310000;512;JVkTm6ihGrdMVBUqMNhBig==;of4qBvsJ0QugB91UvAbCXZ8ae9ZgbF3WlcXjq3vdJQKgma2stAzKJotMgOEElb+L/ad2y860GeKTBwWdispR/A==', true);
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.cli;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yupiik.fusion.framework.api.main.Launcher;
+import io.yupiik.hcms.service.persistence.DatabaseLoader;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+
+class CdsTrainingTest {
+    @Test
+    void training() {
+        final var records = new CopyOnWriteArrayList<LogRecord>();
+        final var handler = new Handler() {
+            @Override
+            public void publish(final LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+                // no-op
+            }
+
+            @Override
+            public void close() {
+                flush();
+            }
+        };
+        final var logger = Logger.getLogger("io.yupiik.hcms");
+        logger.addHandler(handler);
+        try {
+            // "-" is not a valid JDBC url so any SQL would fail the command
+            Launcher.main("cds-training", "--hcms-modelLocation", "conf/model.json", "--hcms-database-url", "-");
+        } finally {
+            logger.removeHandler(handler);
+        }
+
+        assertTrue(
+                records.stream()
+                        .anyMatch(r -> CdsTraining.class.getName().equals(r.getLoggerName())
+                                && String.valueOf(r.getMessage()).startsWith("Training done")),
+                () -> messages(records).toString());
+        // the model scripts were not even considered for a migration
+        assertFalse(
+                records.stream().anyMatch(r -> DatabaseLoader.class.getName().equals(r.getLoggerName())),
+                () -> messages(records).toString());
+    }
+
+    private List<String> messages(final List<LogRecord> records) {
+        return records.stream().map(r -> r.getLoggerName() + ": " + r.getMessage()).toList();
+    }
+}
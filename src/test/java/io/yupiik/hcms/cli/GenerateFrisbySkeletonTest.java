@@ -53,7 +53,7 @@ class GenerateFrisbySkeletonTest {
                 return super.visitFile(file, attrs);
             }
         });
-        assertEquals(10, files.size());
+        assertEquals(13, files.size());
         Stream.of(
                         "README.adoc",
                         "jest.config.js",
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.cli;
+
+import static java.util.Optional.empty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yupiik.fusion.framework.api.main.Launcher;
+import io.yupiik.fusion.json.internal.JsonMapperImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PrecompileModelTest {
+    @Test
+    void precompile(@TempDir final Path path) throws IOException {
+        final var out = path.resolve("plan.json");
+        Launcher.main(
+                "precompile-model",
+                "--hcms-modelLocation",
+                "conf/model.json",
+                "--hcms-database-url",
+                "-",
+                "--output",
+                out.toString());
+        assertTrue(Files.exists(out));
+
+        try (final var mapper = new JsonMapperImpl(List.of(), e -> empty())) {
+            final var plan = (Map<?, ?>) mapper.fromString(Object.class, Files.readString(out));
+            assertNotNull(plan.get("modelHash"));
+            assertEquals("Test sample", plan.get("title"));
+            assertTrue(plan.get("openrpc").toString().contains("\"posts.findById\""));
+            assertTrue(plan.get("openapi").toString().contains("\"openapi\""));
+            assertEquals(64, plan.get("modelHash").toString().length());
+        }
+    }
+}
@@ -15,16 +15,33 @@
  */
 package io.yupiik.hcms.http;
 
+import static java.net.http.HttpResponse.BodyHandlers.ofByteArray;
 import static java.net.http.HttpResponse.BodyHandlers.ofString;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import io.yupiik.fusion.http.server.api.Request;
+import io.yupiik.fusion.http.server.api.WebServer;
+import io.yupiik.fusion.json.JsonMapper;
 import io.yupiik.fusion.testing.Fusion;
+import io.yupiik.hcms.configuration.HCMSConfiguration;
+import io.yupiik.hcms.service.model.ModelHandler;
+import io.yupiik.hcms.service.model.ModelLoader;
+import io.yupiik.hcms.service.model.ModelPlan;
 import io.yupiik.hcms.test.HCMSSupport;
 import io.yupiik.hcms.test.SimpleJsonRpcClient;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.lang.reflect.Proxy;
 import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 @HCMSSupport
 class DocEndpointTest {
@@ -55,4 +72,138 @@ class DocEndpointTest {
         assertTrue(response.body().contains("\"openapi\":\"3.0.3\""), response::body);
         assertTrue(response.body().contains("\"id\":{\"type\":\"string\"}"), response::body);
     }
+
+    @Test
+    void openrpcCaching(@Fusion final SimpleJsonRpcClient client) throws IOException, InterruptedException {
+        final var uri = client.endpoint().resolve("/openrpc.json");
+        final var response = client.client()
+                .send(
+                        HttpRequest.newBuilder()
+                                .GET()
+                                .uri(uri)
+                                .header("accept-encoding", "gzip")
+                                .build(),
+                        ofByteArray());
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("content-encoding").orElseThrow());
+        try (final var in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertTrue(new String(in.readAllBytes(), UTF_8).contains("\"openrpc\":\"1.2.1\""));
+        }
+
+        final var etag = response.headers().firstValue("etag").orElseThrow();
+        final var notModified = client.client()
+                .send(
+                        HttpRequest.newBuilder()
+                                .GET()
+                                .uri(uri)
+                                .header("accept-encoding", "gzip")
+                                .header("if-none-match", etag)
+                                .build(),
+                        ofString());
+        assertEquals(304, notModified.statusCode());
+        assertEquals("", notModified.body());
+
+        // identity representation has another etag
+        final var identity = client.client()
+                .send(
+                        HttpRequest.newBuilder()
+                                .GET()
+                                .uri(uri)
+                                .header("if-none-match", etag)
+                                .build(),
+                        ofString());
+        assertEquals(200, identity.statusCode());
+        assertNotEquals(etag, identity.headers().firstValue("etag").orElseThrow());
+    }
+
+    @Test
+    void modelPlan(
+            @TempDir final Path work,
+            @Fusion final ModelLoader.DynamicModel model,
+            @Fusion final JsonMapper jsonMapper,
+            @Fusion final ModelHandler modelHandler,
+            @Fusion final WebServer webServer,
+            @Fusion final HCMSConfiguration configuration)
+            throws IOException {
+        final var port = webServer.configuration().port();
+        final var planOpenRPC = "{\"openrpc\":\"from-plan\"}";
+        final var plan = Files.writeString(
+                work.resolve("plan.json"),
+                jsonMapper.toString(new ModelPlan(
+                        ModelPlan.hash(jsonMapper, model.get()), port, "Plan", planOpenRPC, "{}")));
+
+        final var fromPlan = new DocEndpoint(model, jsonMapper, modelHandler, webServer, withPlan(configuration, plan));
+        final var response = fromPlan.getOpenRPC(emptyRequest());
+        assertEquals(200, response.status());
+        assertEquals(
+                List.of("\"" + CachedResource.hash(planOpenRPC.getBytes(UTF_8)) + "\""),
+                response.headers().get("ETag"));
+
+        // a plan from another release (or model) is ignored
+        Files.writeString(
+                plan,
+                jsonMapper.toString(new ModelPlan(
+                        ModelPlan.hash("0.0.0-old", jsonMapper, model.get()), port, "Plan", planOpenRPC, "{}")));
+        final var outdated = new DocEndpoint(model, jsonMapper, modelHandler, webServer, withPlan(configuration, plan));
+        assertTrue(outdated.plan(model.get()).openrpc().contains("\"openrpc\":\"1.2.1\""));
+    }
+
+    @Test
+    void swaggerUIAssets(@Fusion final SimpleJsonRpcClient client) throws IOException, InterruptedException {
+        final var index = client.client()
+                .send(
+                        HttpRequest.newBuilder()
+                                .GET()
+                                .uri(client.endpoint().resolve("/swagger-ui/"))
+                                .build(),
+                        ofString());
+        assertEquals(200, index.statusCode());
+
+        final var html = index.body();
+        final int cssStart = html.indexOf("href=\"", html.indexOf("stylesheet")) + "href=\"".length();
+        final var versionedCss = html.substring(cssStart, html.indexOf('"', cssStart));
+        assertTrue(versionedCss.matches("/swagger-ui/[^/]+/css/swagger-ui\\.css"), versionedCss);
+
+        final var versioned = client.client()
+                .send(
+                        HttpRequest.newBuilder()
+                                .GET()
+                                .uri(client.endpoint().resolve(versionedCss))
+                                .build(),
+                        ofString());
+        assertEquals(200, versioned.statusCode());
+        assertEquals(
+                "public, max-age=31536000, immutable",
+                versioned.headers().firstValue("cache-control").orElseThrow());
+
+        final var notModified = client.client()
+                .send(
+                        HttpRequest.newBuilder()
+                                .GET()
+                                .uri(client.endpoint().resolve("/swagger-ui/css/swagger-ui.css"))
+                                .header(
+                                        "if-none-match",
+                                        versioned.headers().firstValue("etag").orElseThrow())
+                                .build(),
+                        ofString());
+        assertEquals(304, notModified.statusCode());
+    }
+
+    private Request emptyRequest() { // no header so plain 200 responses
+        return (Request) Proxy.newProxyInstance(
+                Thread.currentThread().getContextClassLoader(), new Class<?>[] {Request.class}, (p, m, a) -> null);
+    }
+
+    private HCMSConfiguration withPlan(final HCMSConfiguration configuration, final Path plan) {
+        return new HCMSConfiguration(
+                configuration.disabledRenderers(),
+                configuration.database(),
+                configuration.databaseInit(),
+                configuration.modelLocation(),
+                configuration.devMode(),
+                configuration.devModeDebounce(),
+                plan.toString(),
+                configuration.maxBulkRequest(),
+                configuration.security());
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.http;
+
+import static java.net.http.HttpResponse.BodyHandlers.ofString;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yupiik.fusion.testing.Fusion;
+import io.yupiik.hcms.test.HCMSSupport;
+import io.yupiik.hcms.test.SimpleJsonRpcClient;
+import io.yupiik.hcms.test.SimpleJwts;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import org.junit.jupiter.api.Test;
+
+@HCMSSupport
+class JsonRpcGetEndpointTest {
+    @Test
+    void findById(@Fusion final SimpleJsonRpcClient client) throws IOException, InterruptedException {
+        final var path = "/jsonrpc/posts.findById?params=" + URLEncoder.encode("{\"id\":\"00001\"}", UTF_8);
+        final var response = get(client, path, null);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"title\":\"First post\""), response::body);
+        assertEquals(
+                "public, max-age=60",
+                response.headers().firstValue("cache-control").orElseThrow());
+
+        final var etag = response.headers().firstValue("etag").orElseThrow();
+        final var notModified = get(client, path, etag);
+        assertEquals(304, notModified.statusCode());
+        assertEquals(etag, notModified.headers().firstValue("etag").orElseThrow());
+    }
+
+    @Test
+    void authenticated(@Fusion final SimpleJsonRpcClient client, @Fusion final SimpleJwts jwts)
+            throws IOException, InterruptedException {
+        final var response = get(
+                client,
+                "/jsonrpc/posts.findById?params=" + URLEncoder.encode("{\"id\":\"00001\"}", UTF_8),
+                null,
+                jwts.forUser("test@app.com"));
+        assertEquals(200, response.statusCode());
+        assertEquals(
+                "private, no-store",
+                response.headers().firstValue("cache-control").orElseThrow());
+    }
+
+    @Test
+    void include(@Fusion final SimpleJsonRpcClient client) throws IOException, InterruptedException {
+        final var response = get(
+                client,
+                "/jsonrpc/posts.findById?params="
+                        + URLEncoder.encode("{\"id\":\"00001\",\"include\":[\"comments\"]}", UTF_8),
+                null);
+        assertEquals(400, response.statusCode());
+        assertEquals("no-store", response.headers().firstValue("cache-control").orElseThrow());
+    }
+
+    @Test
+    void missing(@Fusion final SimpleJsonRpcClient client) throws IOException, InterruptedException {
+        final var response = get(
+                client, "/jsonrpc/posts.findById?params=" + URLEncoder.encode("{\"id\":\"missing\"}", UTF_8), null);
+        assertEquals(404, response.statusCode());
+        assertEquals("no-store", response.headers().firstValue("cache-control").orElseThrow());
+    }
+
+    @Test
+    void notReadable(@Fusion final SimpleJsonRpcClient client) throws IOException, InterruptedException {
+        // write method
+        assertEquals(404, get(client, "/jsonrpc/posts.create", null).statusCode());
+        // implicit filtering depends on the caller so it can't be shared
+        assertEquals(404, get(client, "/jsonrpc/posts-filtered.findAll", null).statusCode());
+    }
+
+    private HttpResponse<String> get(final SimpleJsonRpcClient client, final String path, final String ifNoneMatch)
+            throws IOException, InterruptedException {
+        return get(client, path, ifNoneMatch, null);
+    }
+
+    private HttpResponse<String> get(
+            final SimpleJsonRpcClient client, final String path, final String ifNoneMatch, final String jwt)
+            throws IOException, InterruptedException {
+        final var builder = HttpRequest.newBuilder().GET().uri(client.endpoint().resolve(path));
+        if (ifNoneMatch != null) {
+            builder.header("if-none-match", ifNoneMatch);
+        }
+        if (jwt != null) {
+            builder.header("authorization", "Bearer " + jwt);
+        }
+        return client.client().send(builder.build(), ofString());
+    }
+}
@@ -20,10 +20,16 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import io.yupiik.fusion.persistence.api.ContextLessDatabase;
+import io.yupiik.fusion.persistence.api.TransactionManager;
 import io.yupiik.fusion.testing.Fusion;
+import io.yupiik.hcms.service.persistence.entity.User;
+import io.yupiik.hcms.service.security.JwtService;
+import io.yupiik.hcms.service.security.PasswordEncoder;
 import io.yupiik.hcms.test.HCMSSupport;
 import io.yupiik.hcms.test.SimpleJsonRpcClient;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -100,4 +106,130 @@ class SecurityEndpointsTest {
                         "password", "@dm1n"));
         assertFalse(response.isOk());
     }
+
+    @Test
+    void logout(@Fusion final SimpleJsonRpcClient client) {
+        final var token = client.post(
+                        null,
+                        "hcms.security.login",
+                        Map.of(
+                                "username", "test@app.com",
+                                "password", "@dm1n"))
+                .as(Map.class);
+        final var accessToken = token.get("access_token").toString();
+        final var refreshToken = token.get("refresh_token").toString();
+
+        final var logout = client.post(accessToken, "hcms.security.logout", Map.of("refreshToken", refreshToken));
+        assertTrue(logout.isOk());
+        assertEquals(BigDecimal.valueOf(2), logout.as(Map.class).get("revoked"));
+
+        // both tokens are now unusable
+        final var reuse = client.post(accessToken, "hcms.security.logout", Map.of());
+        assertFalse(reuse.isOk());
+        assertEquals(BigDecimal.valueOf(401), reuse.as(Map.class).get("code"));
+
+        final var refresh = client.post(null, "hcms.security.refresh", Map.of("token", refreshToken));
+        assertFalse(refresh.isOk());
+        assertEquals(BigDecimal.valueOf(401), refresh.as(Map.class).get("code"));
+    }
+
+    @Test
+    void revokeRequiresAdmin(@Fusion final SimpleJsonRpcClient client) {
+        final var accessToken = client.post(
+                        null,
+                        "hcms.security.login",
+                        Map.of(
+                                "username", "test@app.com",
+                                "password", "@dm1n"))
+                .as(Map.class)
+                .get("access_token")
+                .toString();
+        final var revoke = client.post(accessToken, "hcms.security.revoke", Map.of("jti", "whatever"));
+        assertFalse(revoke.isOk());
+        assertEquals(BigDecimal.valueOf(403), revoke.as(Map.class).get("code"));
+    }
+
+    @Test
+    void throttling(@Fusion final SimpleJsonRpcClient client) {
+        for (int i = 0; i < 10; i++) {
+            final var response = client.post(
+                    null,
+                    "hcms.security.login",
+                    Map.of(
+                            "username", "throttled@app.com",
+                            "password", "wrong"));
+            assertEquals(BigDecimal.valueOf(401), response.as(Map.class).get("code"));
+        }
+
+        final var throttled = client.post(
+                null,
+                "hcms.security.login",
+                Map.of(
+                        "username", "Throttled@app.com",
+                        "password", "wrong"));
+        assertFalse(throttled.isOk());
+        assertEquals(BigDecimal.valueOf(429), throttled.as(Map.class).get("code"));
+    }
+
+    @Test
+    void throttlingResetOnSuccess(@Fusion final SimpleJsonRpcClient client) {
+        final Runnable failures = () -> {
+            for (int i = 0; i < 6; i++) {
+                final var response = client.post(
+                        null,
+                        "hcms.security.login",
+                        Map.of(
+                                "username", "test@app.com",
+                                "password", "wrong"));
+                assertEquals(BigDecimal.valueOf(401), response.as(Map.class).get("code"));
+            }
+        };
+
+        failures.run();
+        assertTrue(client.post(
+                        null,
+                        "hcms.security.login",
+                        Map.of(
+                                "username", "test@app.com",
+                                "password", "@dm1n"))
+                .isOk());
+        failures.run(); // would be throttled (> 10 attempts) without the reset
+    }
+
+    @Test
+    void tokenRoles(
+            @Fusion final SimpleJsonRpcClient client,
+            @Fusion final TransactionManager tx,
+            @Fusion final ContextLessDatabase database,
+            @Fusion final PasswordEncoder encoder,
+            @Fusion final JwtService jwtService) {
+        tx.writeSQL(c -> {
+            database.insert(
+                    c, new User("roles", "roles@app.com", "Roles", "App", encoder.toDatabase("r0les"), true));
+            try (final var s = c.createStatement()) {
+                s.execute("INSERT INTO HCMS_ROLE(ID, NAME) VALUES('r1', 'editor')");
+                s.execute("INSERT INTO HCMS_ROLE(ID, NAME) VALUES('r2', 'reviewer')");
+                s.execute("INSERT INTO HCMS_USER_ROLE(USER_ID, ROLE_ID) VALUES('roles', 'r1')");
+                s.execute("INSERT INTO HCMS_USER_ROLE(USER_ID, ROLE_ID) VALUES('roles', 'r2')");
+            }
+            return null;
+        });
+
+        final var response = client.post(
+                null,
+                "hcms.security.login",
+                Map.of(
+                        "username", "Roles@App.com",
+                        "password", "r0les"));
+        assertTrue(response.isOk());
+
+        final var jwt =
+                jwtService.verify(response.as(Map.class).get("access_token").toString());
+        assertEquals(
+                List.of("editor", "reviewer", "user:roles"),
+                jwt.claim("roles", List.class).orElseThrow().stream()
+                        .map(Object::toString)
+                        .sorted()
+                        .toList());
+    }
 }
@@ -19,6 +19,7 @@ import static java.util.Map.entry;
 import static java.util.stream.Collectors.toMap;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -33,8 +34,10 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.IntFunction;
 import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
@@ -65,6 +68,33 @@ class VirtualJsonRpcMethodTest {
                 result.as(Map.class));
     }
 
+    @Test
+    void findByIdConditional(@Fusion final SimpleJsonRpcClient client) {
+        final var first = client.post(null, "posts.findById", Map.of("id", "00001", "ifNoneMatch", ""));
+        assertJsonRpcResultOk(first);
+        final var result = first.as(Map.class);
+        final var etag = result.get("_etag");
+        assertTrue(etag instanceof String s && !s.isBlank(), first::debug);
+        assertEquals("First post", result.get("title"));
+
+        assertJsonRpcResult(
+                Map.of("_notModified", true, "_etag", etag),
+                client.post(null, "posts.findById", Map.of("id", "00001", "ifNoneMatch", etag)));
+
+        final var nullEtag = new HashMap<String, Object>();
+        nullEtag.put("id", "00001");
+        nullEtag.put("ifNoneMatch", null);
+        final var notConditional = client.post(null, "posts.findById", nullEtag);
+        assertJsonRpcResultOk(notConditional);
+        assertEquals("First post", notConditional.as(Map.class).get("title"));
+
+        final var projected = client.post(
+                null, "posts.findById", Map.of("id", "00001", "fields", List.of("title"), "ifNoneMatch", etag));
+        assertJsonRpcResultOk(projected);
+        assertEquals("First post", projected.as(Map.class).get("title"));
+        assertNotEquals(etag, projected.as(Map.class).get("_etag"));
+    }
+
     @Test
     void deleteByIdOk(
             final TestInfo info, @Fusion final SimpleJsonRpcClient client, @Fusion final TransactionManager tx) {
@@ -369,6 +399,381 @@ class VirtualJsonRpcMethodTest {
         assertJsonRpcResultOk(client.post(null, "posts.deleteById", Map.of("id", id)));
     }
 
+    @Test
+    void patch(@Fusion final SimpleJsonRpcClient client) {
+        final var id = client.post(null, "posts.create", Map.of("title", "Patch me", "content", "Original content."))
+                .as(Map.class)
+                .get("id");
+        try {
+            assertJsonRpcResult(
+                    Map.of("id", id, "title", "Patched"),
+                    client.post(null, "posts.patch", Map.of("id", id, "title", "Patched")));
+            assertJsonRpcResult(
+                    Map.of("id", id, "title", "Patched", "content", "Original content."),
+                    client.post(null, "posts.findById", Map.of("id", id)));
+
+            assertEquals(
+                    BigDecimal.valueOf(404),
+                    client.post(null, "posts.patch", Map.of("id", "missing", "title", "Patched"))
+                            .as(Map.class)
+                            .get("code"));
+        } finally {
+            client.post(null, "posts.deleteById", Map.of("id", id));
+        }
+    }
+
+    @Test
+    void patchValidation(@Fusion final SimpleJsonRpcClient client) {
+        final var id = client.post(null, "posts-validated.create", Map.of("title", "Patch me", "content", "Valid."))
+                .as(Map.class)
+                .get("id");
+        try {
+            // patched values are validated
+            final var invalid = client.post(null, "posts-validated.patch", Map.of("id", id, "title", 1));
+            assertFalse(invalid.isOk());
+            assertEquals(BigDecimal.valueOf(400), invalid.as(Map.class).get("code"));
+
+            // but required fields which are not patched are not
+            assertJsonRpcResult(
+                    Map.of("id", id, "title", "Patched"),
+                    client.post(null, "posts-validated.patch", Map.of("id", id, "title", "Patched")));
+            assertJsonRpcResult(
+                    Map.of("id", id, "title", "Patched", "content", "Valid."),
+                    client.post(null, "posts-validated.findById", Map.of("id", id)));
+        } finally {
+            assertJsonRpcResultOk(client.post(null, "posts-validated.deleteById", Map.of("id", id)));
+        }
+    }
+
+    @Test
+    void patchFiltered(@Fusion final SimpleJsonRpcClient client, @Fusion final SimpleJwts jwts) {
+        final var jwt = jwts.forUser("test@app.com");
+        final var id = client.post(
+                        jwt,
+                        "posts-filtered.create",
+                        Map.of("title", "Patch me", "status", "PUBLISHED", "content", "Original."))
+                .as(Map.class)
+                .get("id");
+        try {
+            // visible but not updatable by anonymous users
+            assertEquals(
+                    BigDecimal.valueOf(404),
+                    client.post(null, "posts-filtered.patch", Map.of("id", id, "title", "Anonymous"))
+                            .as(Map.class)
+                            .get("code"));
+            assertEquals(
+                    "Patch me",
+                    client.post(null, "posts-filtered.findById", Map.of("id", id))
+                            .as(Map.class)
+                            .get("title"));
+
+            assertJsonRpcResult(
+                    Map.of("id", id, "title", "Patched"),
+                    client.post(jwt, "posts-filtered.patch", Map.of("id", id, "title", "Patched")));
+            assertEquals(
+                    "Patched",
+                    client.post(null, "posts-filtered.findById", Map.of("id", id))
+                            .as(Map.class)
+                            .get("title"));
+        } finally {
+            assertJsonRpcResultOk(client.post(null, "posts-filtered.deleteById", Map.of("id", id)));
+        }
+    }
+
+    @Test
+    void patchExpectedRevision(@Fusion final SimpleJsonRpcClient client, @Fusion final TransactionManager tx) {
+        final var created = client.post(null, "versioned.create", Map.of("id", "patched", "name", "first"));
+        assertJsonRpcResultOk(created);
+        final var revision = created.as(Map.class).get("rev");
+        try {
+            final var patched = client.post(
+                    null, "versioned.patch", Map.of("id", "patched", "name", "second", "expectedRevision", revision));
+            assertJsonRpcResultOk(patched);
+            assertNotEquals(revision, patched.as(Map.class).get("rev"));
+
+            // stale revision
+            final var conflict = client.post(
+                    null, "versioned.patch", Map.of("id", "patched", "name", "third", "expectedRevision", revision));
+            assertFalse(conflict.isOk());
+            assertEquals(BigDecimal.valueOf(409), conflict.as(Map.class).get("code"));
+            assertEquals(
+                    "second",
+                    client.post(null, "versioned.findById", Map.of("id", "patched"))
+                            .as(Map.class)
+                            .get("name"));
+        } finally {
+            tx.writeSQL(c -> {
+                try (final var s = c.createStatement()) {
+                    return s.executeUpdate("delete from entity_versioned where id = 'patched'");
+                }
+            });
+        }
+    }
+
+    @Test
+    void upsert(@Fusion final SimpleJsonRpcClient client, @Fusion final TransactionManager tx) {
+        final var created = client.post(null, "posts.upsert", Map.of("title", "Upserted", "content", "Created."));
+        assertJsonRpcResultOk(created);
+        final var id = created.as(Map.class).get("id").toString();
+        try {
+            assertTrue(exists(tx, id));
+
+            assertJsonRpcResultOk(
+                    client.post(null, "posts.upsert", Map.of("id", id, "title", "Upserted", "content", "Updated.")));
+            assertJsonRpcResult(
+                    Map.of("id", id, "title", "Upserted", "content", "Updated."),
+                    client.post(null, "posts.findById", Map.of("id", id)));
+        } finally {
+            client.post(null, "posts.deleteById", Map.of("id", id));
+        }
+    }
+
+    @Test
+    void upsertCreateOnlyFields(
+            @Fusion final SimpleJsonRpcClient client,
+            @Fusion final SimpleJwts jwts,
+            @Fusion final TransactionManager tx) {
+        try {
+            // anonymous creation so no owner
+            assertJsonRpcResult(
+                    Map.of("id", "upserted", "name", "first"),
+                    client.post(null, "owned.upsert", Map.of("id", "upserted", "name", "first")));
+
+            // the owner is only generated at creation time so it is neither written nor returned on update
+            assertJsonRpcResult(
+                    Map.of("id", "upserted", "name", "second"),
+                    client.post(
+                            jwts.forUser("test@app.com"), "owned.upsert", Map.of("id", "upserted", "name", "second")));
+            assertJsonRpcResult(
+                    Map.of("id", "upserted", "name", "second"),
+                    client.post(null, "owned.findById", Map.of("id", "upserted")));
+        } finally {
+            tx.writeSQL(c -> {
+                try (final var s = c.createStatement()) {
+                    return s.executeUpdate("delete from entity_owned where id = 'upserted'");
+                }
+            });
+        }
+    }
+
+    @Test
+    void byFilter(@Fusion final SimpleJsonRpcClient client, @Fusion final TransactionManager tx) {
+        final var filters = Map.of("title", Map.of("operator", "like", "value", "by-filter-%"));
+        final IntFunction<Object> create = i -> client.post(
+                        null, "posts.create", Map.of("title", "by-filter-" + i, "content", "Original."))
+                .as(Map.class)
+                .get("id");
+        final var first = create.apply(1);
+        create.apply(2);
+
+        assertEquals(
+                BigDecimal.valueOf(400),
+                client.post(null, "posts.deleteByFilter", Map.of("filters", Map.of()))
+                        .as(Map.class)
+                        .get("code"));
+
+        assertJsonRpcResult(
+                Map.of("affected", BigDecimal.valueOf(2)),
+                client.post(
+                        null,
+                        "posts.updateByFilter",
+                        Map.of("filters", filters, "values", Map.of("content", "Tagged."))));
+        assertEquals(
+                "Tagged.",
+                client.post(null, "posts.findById", Map.of("id", first))
+                        .as(Map.class)
+                        .get("content"));
+
+        // max affected rows of the update is 2
+        create.apply(3);
+        final var tooMany = client.post(
+                null, "posts.updateByFilter", Map.of("filters", filters, "values", Map.of("content", "Again.")));
+        assertFalse(tooMany.isOk());
+        assertEquals(BigDecimal.valueOf(400), tooMany.as(Map.class).get("code"));
+
+        assertJsonRpcResult(
+                Map.of("affected", BigDecimal.valueOf(3)),
+                client.post(null, "posts.deleteByFilter", Map.of("filters", filters)));
+        assertFalse(exists(tx, first.toString()));
+    }
+
+    @Test
+    void updateByFilterValidation(@Fusion final SimpleJsonRpcClient client) {
+        final var id = client.post(
+                        null, "posts-validated.create", Map.of("title", "by-filter-validated", "content", "Valid."))
+                .as(Map.class)
+                .get("id");
+        try {
+            final var invalid = client.post(
+                    null,
+                    "posts-validated.updateByFilter",
+                    Map.of(
+                            "filters", Map.of("title", Map.of("value", "by-filter-validated")),
+                            "values", Map.of("content", 1)));
+            assertFalse(invalid.isOk());
+            assertEquals(BigDecimal.valueOf(400), invalid.as(Map.class).get("code"));
+            assertEquals(
+                    "Valid.",
+                    client.post(null, "posts-validated.findById", Map.of("id", id))
+                            .as(Map.class)
+                            .get("content"));
+        } finally {
+            assertJsonRpcResultOk(client.post(null, "posts-validated.deleteById", Map.of("id", id)));
+        }
+    }
+
+    @Test
+    void include(@Fusion final SimpleJsonRpcClient client, @Fusion final TransactionManager tx) {
+        final var post = client.post(null, "blog-posts.create", Map.of("title", "With comments", "content", "Blog."))
+                .as(Map.class)
+                .get("id");
+        final var first = client.post(
+                        null, "blog-comments.create", Map.of("content", "First comment", "post_id", post))
+                .as(Map.class)
+                .get("id");
+        final var second = client.post(
+                        null, "blog-comments.create", Map.of("content", "Second comment", "post_id", post))
+                .as(Map.class)
+                .get("id");
+        try {
+            final var withComments = client.post(
+                            null, "blog-posts.findById", Map.of("id", post, "include", List.of("comments")))
+                    .as(Map.class);
+            assertEquals(
+                    Set.of(
+                            Map.of("id", first, "content", "First comment", "post_id", post),
+                            Map.of("id", second, "content", "Second comment", "post_id", post)),
+                    Set.copyOf((List<?>) withComments.get("comments")));
+
+            // nested relation on a whole page
+            final var page = client.post(
+                            null,
+                            "blog-comments.findAll",
+                            Map.of("include", List.of("post", "post.comments"), "pageSize", 50))
+                    .as(Map.class);
+            final var items = (List<?>) page.get("items");
+            assertEquals(2, items.size());
+            for (final var item : items) {
+                final var relatedPost = (Map<?, ?>) ((Map<?, ?>) item).get("post");
+                assertEquals("With comments", relatedPost.get("title"));
+                assertEquals(2, ((List<?>) relatedPost.get("comments")).size());
+            }
+
+            assertEquals(
+                    BigDecimal.valueOf(400),
+                    client.post(null, "blog-posts.findById", Map.of("id", post, "include", List.of("missing")))
+                            .as(Map.class)
+                            .get("code"));
+        } finally {
+            tx.writeSQL(c -> {
+                try (final var s = c.createStatement()) {
+                    s.executeUpdate("delete from blog_comment");
+                    return s.executeUpdate("delete from blog_post");
+                }
+            });
+        }
+    }
+
+    @Test
+    void aggregate(@Fusion final SimpleJsonRpcClient client) {
+        final var filters = Map.of("title", Map.of("operator", "like", "value", "aggregated-%"));
+        for (final var title : List.of("aggregated-a", "aggregated-a", "aggregated-b")) {
+            assertJsonRpcResultOk(client.post(null, "posts.create", Map.of("title", title, "content", title + "!")));
+        }
+        try {
+            assertJsonRpcResult(
+                    Map.of(
+                            "columns",
+                            List.of("title", "count", "max_content"),
+                            "items",
+                            List.of(
+                                    List.of("aggregated-a", BigDecimal.valueOf(2), "aggregated-a!"),
+                                    List.of("aggregated-b", BigDecimal.ONE, "aggregated-b!"))),
+                    client.post(
+                            null,
+                            "posts.aggregate",
+                            Map.of(
+                                    "groupBy",
+                                    List.of("title"),
+                                    "aggregates",
+                                    List.of(
+                                            Map.of("function", "count"),
+                                            Map.of("function", "max", "property", "content")),
+                                    "filters",
+                                    filters)));
+
+            // no group by, default to a count
+            assertJsonRpcResult(
+                    Map.of("columns", List.of("count"), "items", List.of(List.of(BigDecimal.valueOf(3)))),
+                    client.post(null, "posts.aggregate", Map.of("filters", filters)));
+
+            // allow-lists
+            assertEquals(
+                    BigDecimal.valueOf(400),
+                    client.post(null, "posts.aggregate", Map.of("groupBy", List.of("content")))
+                            .as(Map.class)
+                            .get("code"));
+            assertEquals(
+                    BigDecimal.valueOf(400),
+                    client.post(
+                                    null,
+                                    "posts.aggregate",
+                                    Map.of("aggregates", List.of(Map.of("function", "sum", "property", "content"))))
+                            .as(Map.class)
+                            .get("code"));
+        } finally {
+            assertJsonRpcResultOk(client.post(null, "posts.deleteByFilter", Map.of("filters", filters)));
+        }
+    }
+
+    @Test
+    void aggregateCache(@Fusion final SimpleJsonRpcClient client, @Fusion final TransactionManager tx) {
+        assertJsonRpcResultOk(client.post(null, "owned.upsert", Map.of("id", "cached-1", "name", "first")));
+        try {
+            final var cached = Map.of("columns", List.of("count"), "items", List.of(List.of(BigDecimal.ONE)));
+            assertJsonRpcResult(cached, client.post(null, "owned.aggregate", Map.of()));
+
+            // served from the cache during the configured 60s
+            assertJsonRpcResultOk(client.post(null, "owned.upsert", Map.of("id", "cached-2", "name", "second")));
+            assertJsonRpcResult(cached, client.post(null, "owned.aggregate", Map.of()));
+        } finally {
+            tx.writeSQL(c -> {
+                try (final var s = c.createStatement()) {
+                    return s.executeUpdate("delete from entity_owned where id like 'cached-%'");
+                }
+            });
+        }
+    }
+
+    @Test
+    void aggregateCacheImplicitFiltering(@Fusion final SimpleJsonRpcClient client, @Fusion final SimpleJwts jwts) {
+        final var jwt = jwts.forUser("test@app.com");
+        final var first = client.post(
+                        jwt,
+                        "posts-filtered.create",
+                        Map.of("title", "Aggregated", "status", "PUBLISHED", "content", "First."))
+                .as(Map.class)
+                .get("id");
+        final var second = client.post(
+                        jwt,
+                        "posts-filtered.create",
+                        Map.of("title", "Aggregated", "status", "DRAFT", "content", "Second."))
+                .as(Map.class)
+                .get("id");
+        try {
+            // the result depends on the caller so the configured cache is bypassed
+            assertJsonRpcResult(
+                    Map.of("columns", List.of("count"), "items", List.of(List.of(BigDecimal.ONE))),
+                    client.post(null, "posts-filtered.aggregate", Map.of()));
+            assertJsonRpcResult(
+                    Map.of("columns", List.of("count"), "items", List.of(List.of(BigDecimal.valueOf(2)))),
+                    client.post(jwt, "posts-filtered.aggregate", Map.of()));
+        } finally {
+            assertJsonRpcResultOk(client.post(null, "posts-filtered.deleteById", Map.of("id", first)));
+            assertJsonRpcResultOk(client.post(null, "posts-filtered.deleteById", Map.of("id", second)));
+        }
+    }
+
     @Test
     void revision(@Fusion final SimpleJsonRpcClient client) {
         assertJsonRpcResultOk(client.post(null, "entity-with-revision.create", Map.of("id", "1", "name", "first")));
@@ -410,6 +815,79 @@ class VirtualJsonRpcMethodTest {
                 Map.of("success", true), client.post(null, "entity-with-revision.deleteById", Map.of("id", "1")));
     }
 
+    @Test
+    void optimisticLocking(@Fusion final SimpleJsonRpcClient client, @Fusion final TransactionManager tx) {
+        final var created = client.post(null, "versioned.create", Map.of("id", "1", "name", "first"));
+        assertJsonRpcResultOk(created);
+        final var revision = created.as(Map.class).get("rev");
+        assertNotNull(revision, created::debug);
+
+        final var updated = client.post(
+                null, "versioned.update", Map.of("id", "1", "name", "second", "expectedRevision", revision));
+        assertJsonRpcResultOk(updated);
+        final var newRevision = updated.as(Map.class).get("rev");
+        assertNotEquals(revision, newRevision);
+
+        // stale revision
+        final var conflict = client.post(
+                null, "versioned.update", Map.of("id", "1", "name", "third", "expectedRevision", revision));
+        assertFalse(conflict.isOk());
+        assertEquals(BigDecimal.valueOf(409), conflict.as(Map.class).get("code"));
+
+        assertEquals("second", tx.readSQL(c -> {
+            try (final var s = c.createStatement();
+                    final var r = s.executeQuery("select name from entity_versioned where id = '1'")) {
+                return r.next() ? r.getString(1) : null;
+            }
+        }));
+
+        // cleanup
+        tx.writeSQL(c -> {
+            try (final var s = c.createStatement()) {
+                return s.executeUpdate("delete from entity_versioned");
+            }
+        });
+    }
+
+    @Test
+    void findByIdConditionalRevision(@Fusion final SimpleJsonRpcClient client, @Fusion final TransactionManager tx) {
+        assertJsonRpcResultOk(client.post(null, "versioned.create", Map.of("id", "conditional", "name", "first")));
+        try {
+            final var first = client.post(null, "versioned.findById", Map.of("id", "conditional", "ifNoneMatch", ""));
+            assertJsonRpcResultOk(first);
+            final var etag = first.as(Map.class).get("_etag");
+            // revision based etag, not a payload hash
+            assertEquals(first.as(Map.class).get("rev").toString(), etag, first::debug);
+
+            assertJsonRpcResult(
+                    Map.of("_notModified", true, "_etag", etag),
+                    client.post(null, "versioned.findById", Map.of("id", "conditional", "ifNoneMatch", etag)));
+
+            final var projected = client.post(
+                    null,
+                    "versioned.findById",
+                    Map.of("id", "conditional", "fields", List.of("name"), "ifNoneMatch", etag));
+            assertJsonRpcResultOk(projected);
+            assertEquals("first", projected.as(Map.class).get("name"));
+            assertNotEquals(etag, projected.as(Map.class).get("_etag"));
+
+            assertJsonRpcResultOk(
+                    client.post(null, "versioned.update", Map.of("id", "conditional", "name", "second")));
+            final var updated =
+                    client.post(null, "versioned.findById", Map.of("id", "conditional", "ifNoneMatch", etag));
+            assertJsonRpcResultOk(updated);
+            assertEquals("second", updated.as(Map.class).get("name"));
+            assertNotEquals(etag, updated.as(Map.class).get("_etag"));
+            assertEquals(updated.as(Map.class).get("rev").toString(), updated.as(Map.class).get("_etag"));
+        } finally {
+            tx.writeSQL(c -> {
+                try (final var s = c.createStatement()) {
+                    return s.executeUpdate("delete from entity_versioned where id = 'conditional'");
+                }
+            });
+        }
+    }
+
     @Test
     void bulkFindByIdOk(@Fusion final SimpleJsonRpcClient client, @Fusion final JsonMapper jsonMapper)
             throws IOException, InterruptedException {
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.launch;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Boots the application against an in memory H2 database and measures the time to the first successful request
+ * and the RSS after it for the JVM and - if {@code hcms.native.binary} is set - the native build
+ * ({@code mvn package -Pnative}).
+ */
+@EnabledIfSystemProperty(named = "hcms.benchmark", matches = "true")
+class StartupBenchmarkTest {
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @Test
+    void startup() throws Exception {
+        final var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        final var jvm = measure("jvm", List.of(
+                java,
+                "-Djava.util.logging.manager=io.yupiik.logging.jul.YupiikLogManager",
+                "-cp",
+                System.getProperty("java.class.path"),
+                "io.yupiik.fusion.framework.api.main.Launcher"));
+
+        final var binary = System.getProperty("hcms.native.binary");
+        if (binary != null && !binary.isBlank()) {
+            assertTrue(Files.exists(Path.of(binary)), "missing native binary " + binary);
+            final var nativeResult = measure("native", List.of(binary));
+            logger.info(() -> String.format(
+                    "Native startup is %.1fx faster and uses %.1fx less memory",
+                    jvm.startup().toNanos() / (double) nativeResult.startup().toNanos(),
+                    jvm.rssKb() / (double) Math.max(1, nativeResult.rssKb())));
+        }
+    }
+
+    private Result measure(final String name, final List<String> launcher) throws Exception {
+        final int port;
+        try (final var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        final var http = HttpClient.newHttpClient();
+        final var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/openrpc.json"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+
+        final long start = System.nanoTime();
+        final var builder = new ProcessBuilder(launcher)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        final var environment = builder.environment(); // works the same for the JVM and native modes
+        environment.put("FUSION_HTTP_SERVER_PORT", Integer.toString(port));
+        environment.put("FUSION_OBSERVABILITY_SERVER_PORT", "0");
+        environment.put("HCMS_DATABASE_DRIVER", "org.h2.Driver");
+        environment.put("HCMS_DATABASE_URL", "jdbc:h2:mem:benchmark;MODE=PostgreSQL");
+        environment.put(
+                "HCMS_MODELLOCATION",
+                Path.of("src/test/resources/conf/model.json").toAbsolutePath().toString());
+        environment.put("HCMS_DEVMODE", "false");
+        final var process = builder.start();
+        try {
+            final long timeout = start + Duration.ofMinutes(1).toNanos();
+            while (true) {
+                assertTrue(process.isAlive(), () -> name + " process exited with status " + process.exitValue());
+                assertTrue(System.nanoTime() < timeout, name + " did not start in time");
+                try {
+                    if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (final IOException ioe) {
+                    // not yet started
+                }
+                Thread.sleep(10);
+            }
+
+            final var result = new Result(Duration.ofNanos(System.nanoTime() - start), rss(process.pid()));
+            logger.info(() -> name + ": startup=" + result.startup().toMillis() + "ms, rss=" + result.rssKb() + "kB");
+            return result;
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    // linux only, -1 elsewhere
+    private long rss(final long pid) throws IOException {
+        final var status = Path.of("/proc/" + pid + "/status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        try (final var lines = Files.lines(status)) {
+            return lines.filter(it -> it.startsWith("VmRSS:"))
+                    .map(it -> it.substring("VmRSS:".length()).strip().split(" ")[0])
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(-1);
+        }
+    }
+
+    private record Result(Duration startup, long rssKb) {}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+    @Test
+    void mightContain() {
+        final var values = IntStream.range(0, 1_000)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .toList();
+        final var filter = new BloomFilter(values, 0.01);
+        assertTrue(values.stream().allMatch(filter::mightContain));
+
+        final long falsePositives = IntStream.range(0, 10_000)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .filter(filter::mightContain)
+                .count();
+        assertTrue(falsePositives < 300, () -> "false positives: " + falsePositives);
+    }
+
+    @Test
+    void empty() {
+        assertFalse(new BloomFilter(List.of(), 0.01).mightContain("test"));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yupiik.fusion.persistence.api.TransactionManager;
+import io.yupiik.fusion.testing.Fusion;
+import io.yupiik.hcms.configuration.HCMSConfiguration;
+import io.yupiik.hcms.test.HCMSSupport;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@HCMSSupport
+class DatabaseLoaderTest {
+    @Test
+    void appliedOnce(
+            @TempDir final Path work,
+            @Fusion final TransactionManager tx,
+            @Fusion final HCMSConfiguration configuration)
+            throws IOException {
+        final var script = Files.writeString(
+                work.resolve("applied-once.sql"),
+                "CREATE TABLE MIGRATION_ONCE(ID INT);\nINSERT INTO MIGRATION_ONCE(ID) VALUES(1);");
+        final var loader = new DatabaseLoader(tx, withInit(configuration, false, false, 120, 60));
+
+        loader.migrate(List.of(script.toString()), false);
+        loader.migrate(List.of(script.toString()), false);
+
+        assertEquals(1, count(tx, "SELECT COUNT(*) FROM MIGRATION_ONCE"));
+        assertNotNull(checksum(tx, script.toString()));
+        assertEquals(0, count(tx, "SELECT COUNT(*) FROM HCMS_SCHEMA_LOCK"));
+    }
+
+    @Test
+    void changedScript(
+            @TempDir final Path work,
+            @Fusion final TransactionManager tx,
+            @Fusion final HCMSConfiguration configuration)
+            throws IOException {
+        final var script = Files.writeString(
+                work.resolve("changed.sql"),
+                "CREATE TABLE IF NOT EXISTS MIGRATION_CHANGED(ID INT);\nINSERT INTO MIGRATION_CHANGED(ID) VALUES(1);");
+        final var scripts = List.of(script.toString());
+        new DatabaseLoader(tx, withInit(configuration, false, false, 120, 60)).migrate(scripts, false);
+        final var initialChecksum = checksum(tx, script.toString());
+
+        Files.writeString(
+                script,
+                "CREATE TABLE IF NOT EXISTS MIGRATION_CHANGED(ID INT);\nINSERT INTO MIGRATION_CHANGED(ID) VALUES(2);");
+
+        // production: only a warning, the script is not replayed
+        new DatabaseLoader(tx, withInit(configuration, false, false, 120, 60)).migrate(scripts, false);
+        assertEquals(1, count(tx, "SELECT COUNT(*) FROM MIGRATION_CHANGED"));
+        assertEquals(initialChecksum, checksum(tx, script.toString()));
+
+        // dev mode: the edited script is re-applied
+        new DatabaseLoader(tx, withInit(configuration, true, false, 120, 60)).migrate(scripts, false);
+        assertEquals(1, count(tx, "SELECT COUNT(*) FROM MIGRATION_CHANGED WHERE ID = 2"));
+        assertNotEquals(initialChecksum, checksum(tx, script.toString()));
+    }
+
+    @Test
+    void baseline(
+            @TempDir final Path work,
+            @Fusion final TransactionManager tx,
+            @Fusion final HCMSConfiguration configuration)
+            throws IOException {
+        final var script = Files.writeString(work.resolve("baseline.sql"), "CREATE TABLE MIGRATION_BASELINE(ID INT);");
+
+        // the history is shared with the test model one so empty it for the test
+        final var history = tx.writeSQL(c -> {
+            final var rows = new ArrayList<List<Object>>();
+            try (final var stmt = c.createStatement()) {
+                try (final var rset =
+                        stmt.executeQuery("SELECT SCRIPT, CHECKSUM, APPLIED_AT FROM HCMS_SCHEMA_HISTORY")) {
+                    while (rset.next()) {
+                        rows.add(List.of(rset.getString(1), rset.getString(2), rset.getLong(3)));
+                    }
+                }
+                stmt.executeUpdate("DELETE FROM HCMS_SCHEMA_HISTORY");
+            }
+            return rows;
+        });
+        try {
+            new DatabaseLoader(tx, withInit(configuration, false, true, 120, 60))
+                    .migrate(List.of(script.toString()), false);
+
+            assertNotNull(checksum(tx, script.toString()));
+            assertFalse(tableExists(tx, "MIGRATION_BASELINE"));
+        } finally {
+            tx.writeSQL(c -> {
+                try (final var stmt = c.prepareStatement(
+                        "INSERT INTO HCMS_SCHEMA_HISTORY(SCRIPT, CHECKSUM, APPLIED_AT) VALUES(?, ?, ?)")) {
+                    for (final var row : history) {
+                        stmt.setString(1, row.get(0).toString());
+                        stmt.setString(2, row.get(1).toString());
+                        stmt.setLong(3, (Long) row.get(2));
+                        stmt.executeUpdate();
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void staleLock(
+            @TempDir final Path work,
+            @Fusion final TransactionManager tx,
+            @Fusion final HCMSConfiguration configuration)
+            throws IOException {
+        final var script = Files.writeString(work.resolve("stale.sql"), "CREATE TABLE MIGRATION_STALE(ID INT);");
+        insertLock(tx);
+
+        // the lock row is never refreshed so it is considered stale after 1s
+        new DatabaseLoader(tx, withInit(configuration, false, false, 30, 1))
+                .migrate(List.of(script.toString()), false);
+
+        assertTrue(tableExists(tx, "MIGRATION_STALE"));
+        assertEquals(0, count(tx, "SELECT COUNT(*) FROM HCMS_SCHEMA_LOCK"));
+    }
+
+    @Test
+    void lockTimeout(
+            @TempDir final Path work,
+            @Fusion final TransactionManager tx,
+            @Fusion final HCMSConfiguration configuration)
+            throws IOException {
+        final var script = Files.writeString(work.resolve("timeout.sql"), "CREATE TABLE MIGRATION_TIMEOUT(ID INT);");
+        insertLock(tx);
+        try {
+            final var loader = new DatabaseLoader(tx, withInit(configuration, false, false, 1, 60));
+            assertThrows(IllegalStateException.class, () -> loader.migrate(List.of(script.toString()), false));
+            assertFalse(tableExists(tx, "MIGRATION_TIMEOUT"));
+        } finally {
+            tx.writeSQL(c -> {
+                try (final var stmt = c.createStatement()) {
+                    return stmt.executeUpdate("DELETE FROM HCMS_SCHEMA_LOCK");
+                }
+            });
+        }
+    }
+
+    private void insertLock(final TransactionManager tx) {
+        tx.writeSQL(c -> {
+            try (final var stmt = c.createStatement()) {
+                return stmt.executeUpdate("INSERT INTO HCMS_SCHEMA_LOCK(ID, LOCKED_AT) VALUES(1, 42)");
+            }
+        });
+    }
+
+    private long count(final TransactionManager tx, final String sql) {
+        return tx.readSQL(c -> {
+            try (final var stmt = c.createStatement();
+                    final var rset = stmt.executeQuery(sql)) {
+                assertTrue(rset.next());
+                return rset.getLong(1);
+            }
+        });
+    }
+
+    private String checksum(final TransactionManager tx, final String script) {
+        return tx.readSQL(c -> {
+            try (final var stmt = c.prepareStatement("SELECT CHECKSUM FROM HCMS_SCHEMA_HISTORY WHERE SCRIPT = ?")) {
+                stmt.setString(1, script);
+                try (final var rset = stmt.executeQuery()) {
+                    return rset.next() ? rset.getString(1) : null;
+                }
+            }
+        });
+    }
+
+    private boolean tableExists(final TransactionManager tx, final String table) {
+        return tx.readSQL(c -> {
+            try (final var stmt = c.prepareStatement(
+                    "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = ?")) {
+                stmt.setString(1, table);
+                try (final var rset = stmt.executeQuery()) {
+                    return rset.next() && rset.getLong(1) > 0;
+                }
+            }
+        });
+    }
+
+    private HCMSConfiguration withInit(
+            final HCMSConfiguration configuration,
+            final boolean devMode,
+            final boolean baseline,
+            final long lockTimeout,
+            final long staleLock) {
+        final var init = configuration.databaseInit();
+        return new HCMSConfiguration(
+                configuration.disabledRenderers(),
+                configuration.database(),
+                new HCMSConfiguration.DatabaseInitialization(
+                        init.enabled(), init.ignoreErrors(), baseline, lockTimeout, staleLock, init.scripts()),
+                configuration.modelLocation(),
+                devMode,
+                configuration.devModeDebounce(),
+                configuration.modelPlan(),
+                configuration.maxBulkRequest(),
+                configuration.security());
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SqlScriptSplitterTest {
+    @Test
+    void multiLineStatements() {
+        assertEquals(
+                List.of("CREATE TABLE A(\n  ID VARCHAR(36)\n)", "INSERT INTO A(ID) VALUES('1')"),
+                SqlScriptSplitter.split("-- comment; with a semicolon\nCREATE TABLE A(\n  ID VARCHAR(36)\n);\n"
+                        + "INSERT INTO A(ID) VALUES('1')"));
+    }
+
+    @Test
+    void quotesAndComments() {
+        assertEquals(
+                List.of("INSERT INTO A(ID, \"X;Y\") VALUES('a;''b',   1)", "SELECT 2"),
+                SqlScriptSplitter.split("INSERT INTO A(ID, \"X;Y\") VALUES('a;''b', /* ; */ 1);;SELECT 2;"));
+    }
+
+    @Test
+    void dollarQuoting() {
+        final var function = "CREATE FUNCTION f() RETURNS INT AS $body$ BEGIN RETURN 1; END; $body$ LANGUAGE plpgsql";
+        assertEquals(
+                List.of(function, "SELECT $1", "DO $$ BEGIN PERFORM 1; END $$"),
+                SqlScriptSplitter.split(function + ";\nSELECT $1;\nDO $$ BEGIN PERFORM 1; END $$;"));
+    }
+}
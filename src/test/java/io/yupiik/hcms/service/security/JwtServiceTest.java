@@ -18,16 +18,29 @@ package io.yupiik.hcms.service.security;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
 
 import io.yupiik.fusion.jsonrpc.JsonRpcException;
+import io.yupiik.fusion.jwt.JwtSignerFactory;
+import io.yupiik.fusion.jwt.JwtValidatorConfiguration;
+import io.yupiik.fusion.jwt.JwtValidatorFactory;
 import io.yupiik.fusion.testing.Fusion;
+import io.yupiik.hcms.configuration.HCMSConfiguration;
 import io.yupiik.hcms.test.HCMSSupport;
+import java.math.BigInteger;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.logging.Logger;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 
 @HCMSSupport
 @TestInstance(PER_CLASS)
@@ -40,6 +53,14 @@ class JwtServiceTest {
         assertNotNull(jwt.claim("jti", String.class));
     }
 
+    @Test
+    void cached(@Fusion final JwtService service) {
+        final var accessToken = service.forgeAccessToken(Map.of("sub", "hcms"));
+        final var jwt = service.verify(accessToken);
+        assertSame(jwt, service.verify(accessToken));
+        assertThrows(JsonRpcException.class, () -> service.verify(accessToken + "_wrong"));
+    }
+
     @Test
     void failOnInvalid(@Fusion final JwtService service) {
         final var valid = service.forgeAccessToken(Map.of("sub", "hcms"));
@@ -60,4 +81,144 @@ class JwtServiceTest {
                 JsonRpcException.class,
                 () -> service.verify(service.forgeAccessToken(Map.of("sub", "hcms", "exp", "0"))));
     }
+
+    @Test
+    void generatedEcdsaKey(
+            @Fusion final HCMSConfiguration configuration,
+            @Fusion final JwtSignerFactory signerFactory,
+            @Fusion final JwtValidatorFactory validatorFactory) {
+        final var service =
+                new JwtService(withAlgorithm(configuration, "ES256", 0), signerFactory, validatorFactory);
+        final var jwt = service.verify(service.forgeAccessToken(Map.of("sub", "hcms")));
+        assertEquals("hcms", jwt.claim("sub", String.class).orElseThrow());
+
+        final var jwks = service.jwks();
+        assertEquals(1, jwks.size());
+        assertEquals("EC", jwks.get(0).get("kty"));
+        assertEquals("P-256", jwks.get(0).get("crv"));
+        assertNotNull(jwks.get(0).get("x"));
+        assertNotNull(jwks.get(0).get("y"));
+    }
+
+    @Test
+    void configuredEcdsaKey(
+            @Fusion final HCMSConfiguration configuration,
+            @Fusion final JwtSignerFactory signerFactory,
+            @Fusion final JwtValidatorFactory validatorFactory)
+            throws Exception {
+        final var generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        final var keyPair = generator.generateKeyPair();
+        final var encoder = Base64.getEncoder();
+        final var service = new JwtService(
+                withKeys(
+                        configuration,
+                        "ES256",
+                        encoder.encodeToString(keyPair.getPrivate().getEncoded()),
+                        List.of(new JwtValidatorConfiguration.JwkKey(
+                                configuration.security().kid(),
+                                "EC",
+                                "ES256",
+                                "sig",
+                                null,
+                                null,
+                                List.of(encoder.encodeToString(keyPair.getPublic().getEncoded())),
+                                null,
+                                null,
+                                null)),
+                        0),
+                signerFactory,
+                validatorFactory);
+        assertEquals(
+                "hcms",
+                service.verify(service.forgeAccessToken(Map.of("sub", "hcms")))
+                        .claim("sub", String.class)
+                        .orElseThrow());
+
+        final var jwks = service.jwks();
+        assertEquals(1, jwks.size());
+        final var jwk = jwks.get(0);
+        assertEquals("EC", jwk.get("kty"));
+        assertEquals("P-256", jwk.get("crv"));
+        assertNull(jwk.get("x5c")); // not a certificate
+
+        final var point = ((ECPublicKey) keyPair.getPublic()).getW();
+        final var decoder = Base64.getUrlDecoder();
+        assertEquals(point.getAffineX(), new BigInteger(1, decoder.decode(jwk.get("x").toString())));
+        assertEquals(point.getAffineY(), new BigInteger(1, decoder.decode(jwk.get("y").toString())));
+    }
+
+    // run with -Dhcms.benchmark=true to compare the algorithms cost, no cache to measure the raw verification
+    @Test
+    @EnabledIfSystemProperty(named = "hcms.benchmark", matches = "true")
+    void benchmark(
+            @Fusion final HCMSConfiguration configuration,
+            @Fusion final JwtSignerFactory signerFactory,
+            @Fusion final JwtValidatorFactory validatorFactory) {
+        final var logger = Logger.getLogger(getClass().getName());
+        final int iterations = Integer.getInteger("hcms.benchmark.iterations", 2_000);
+        for (final var algorithm : List.of("RS256", "ES256", "ES384")) {
+            final var service =
+                    new JwtService(withAlgorithm(configuration, algorithm, 0), signerFactory, validatorFactory);
+
+            // warmup
+            for (int i = 0; i < iterations / 10; i++) {
+                service.verify(service.forgeAccessToken(Map.of("sub", "hcms")));
+            }
+
+            final var tokens = new String[iterations];
+            final long signStart = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                tokens[i] = service.forgeAccessToken(Map.of("sub", "hcms" + i));
+            }
+            final long signEnd = System.nanoTime();
+            for (final var token : tokens) {
+                service.verify(token);
+            }
+            final long verifyEnd = System.nanoTime();
+
+            logger.info(() -> algorithm + ": sign=" + (iterations * 1_000_000_000L / (signEnd - signStart))
+                    + " op/s, verify=" + (iterations * 1_000_000_000L / (verifyEnd - signEnd)) + " op/s");
+        }
+    }
+
+    private HCMSConfiguration withAlgorithm(
+            final HCMSConfiguration configuration, final String algorithm, final int jwtCacheSize) {
+        return withKeys(configuration, algorithm, null, List.of(), jwtCacheSize);
+    }
+
+    private HCMSConfiguration withKeys(
+            final HCMSConfiguration configuration,
+            final String algorithm,
+            final String privateKey,
+            final List<JwtValidatorConfiguration.JwkKey> keys,
+            final int jwtCacheSize) {
+        final var security = configuration.security();
+        return new HCMSConfiguration(
+                configuration.disabledRenderers(),
+                configuration.database(),
+                configuration.databaseInit(),
+                configuration.modelLocation(),
+                configuration.devMode(),
+                configuration.devModeDebounce(),
+                configuration.modelPlan(),
+                configuration.maxBulkRequest(),
+                new HCMSConfiguration.SecurityConfiguration(
+                        privateKey,
+                        algorithm,
+                        security.issuer(),
+                        security.kid(),
+                        security.tolerance(),
+                        security.accessValidity(),
+                        security.refreshValidity(),
+                        keys,
+                        jwtCacheSize,
+                        2_048,
+                        security.userCacheSize(),
+                        security.userCacheTtl(),
+                        security.userNegativeCacheTtl(),
+                        security.revocationRefreshInterval(),
+                        security.revocationAdminRole(),
+                        security.loginThrottling()));
+    }
 }
@@ -17,6 +17,7 @@ package io.yupiik.hcms.service.security;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
 
@@ -36,4 +37,20 @@ class PasswordEncoderTest {
         assertTrue(encoder.matches("secret", encoded));
         assertFalse(encoder.matches("secRet", encoded));
     }
+
+    @Test
+    void rehash(@Fusion final PasswordEncoder encoder) {
+        final var current = encoder.toDatabase("secret");
+        assertFalse(encoder.needsRehash(current));
+        assertNull(encoder.rehashIfNeeded("secret", current));
+
+        final var old = new PasswordEncoder(
+                        new PasswordConfiguration(1_000, 256, 16, "PBKDF2WithHmacSHA256", 1, 1, true))
+                .toDatabase("secret");
+        assertTrue(encoder.needsRehash(old));
+        final var rehashed = encoder.rehashIfNeeded("secret", old);
+        assertNotNull(rehashed);
+        assertFalse(encoder.needsRehash(rehashed));
+        assertTrue(encoder.matches("secret", rehashed));
+    }
 }
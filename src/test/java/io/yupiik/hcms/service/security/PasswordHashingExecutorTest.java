@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.security;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+import io.yupiik.fusion.jsonrpc.JsonRpcException;
+import io.yupiik.fusion.observability.metrics.MetricsRegistry;
+import io.yupiik.fusion.testing.Fusion;
+import io.yupiik.hcms.test.HCMSSupport;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@HCMSSupport
+@TestInstance(PER_CLASS)
+class PasswordHashingExecutorTest {
+    @Test
+    void rejectWhenFull(@Fusion final MetricsRegistry metrics) throws Exception {
+        final var executor = new PasswordHashingExecutor(
+                new PasswordConfiguration(1, 256, 16, "PBKDF2WithHmacSHA256", 1, 1, false), metrics);
+        final var latch = new CountDownLatch(1);
+        try {
+            final var running = executor.submit(() -> {
+                try {
+                    return latch.await(1, TimeUnit.MINUTES);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            });
+            final var queued = executor.submit(() -> true);
+
+            // pool and queue are full so it must fail immediately
+            final var error = assertThrows(ExecutionException.class, () -> executor.submit(() -> true)
+                    .toCompletableFuture()
+                    .get());
+            assertTrue(error.getCause() instanceof JsonRpcException, () -> String.valueOf(error.getCause()));
+
+            latch.countDown();
+            assertTrue(running.toCompletableFuture().get(1, TimeUnit.MINUTES));
+            assertTrue(queued.toCompletableFuture().get(1, TimeUnit.MINUTES));
+        } finally {
+            latch.countDown();
+            executor.destroy();
+        }
+    }
+}
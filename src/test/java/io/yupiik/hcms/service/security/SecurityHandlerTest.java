@@ -30,8 +30,11 @@ import io.yupiik.hcms.test.HCMSSupport;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 
 @HCMSSupport
 class SecurityHandlerTest {
@@ -82,6 +85,47 @@ class SecurityHandlerTest {
         assertThrows(JsonRpcException.class, () -> exec(securityHandler, expectedRole, null));
     }
 
+    @Test
+    void lateRoles(@Fusion final JwtService service, @Fusion final SecurityHandler securityHandler)
+            throws ExecutionException, InterruptedException {
+        final var accessToken =
+                service.forgeAccessToken(Map.of("sub", "hcms", "roles", List.of("first-role", "late-role")));
+        final var first = new Model.SecurityValidation(false, false, List.of("first-role"));
+        assertEquals("ok", exec(securityHandler, first, accessToken));
+
+        // a model reload can register new roles, cached masks must take them into account
+        final var late = new Model.SecurityValidation(false, false, List.of("late-role"));
+        final var other = new Model.SecurityValidation(false, false, List.of("other-role"));
+        assertEquals("ok", exec(securityHandler, late, accessToken));
+        assertThrows(JsonRpcException.class, () -> exec(securityHandler, other, accessToken));
+    }
+
+    // run with -Dhcms.benchmark=true to measure the role check cost with a lot of roles
+    @Test
+    @EnabledIfSystemProperty(named = "hcms.benchmark", matches = "true")
+    void benchmark(@Fusion final JwtService service, @Fusion final SecurityHandler securityHandler) {
+        final var roles = IntStream.range(0, 512).mapToObj(i -> "bench-role-" + i).toList();
+        final var accessToken = service.forgeAccessToken(Map.of("sub", "hcms", "roles", roles.subList(256, 512)));
+        final var methods = IntStream.range(0, 64)
+                .mapToObj(i -> securityHandler.compile(
+                        new Model.SecurityValidation(false, false, roles.subList(i * 4, 256 + i * 4)),
+                        cx -> completedFuture("ok")))
+                .toList();
+        final var context = new JsonRpcMethod.Context(request(accessToken), Map.of());
+        final int iterations = Integer.getInteger("hcms.benchmark.iterations", 1_000_000);
+
+        for (int i = 0; i < iterations / 10; i++) { // warmup
+            methods.get(i % methods.size()).apply(context);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            methods.get(i % methods.size()).apply(context);
+        }
+        final long duration = System.nanoTime() - start;
+        Logger.getLogger(getClass().getName())
+                .info(() -> "Role check: " + (duration / iterations) + "ns/op (" + roles.size() + " roles)");
+    }
+
     private Object exec(
             final SecurityHandler securityHandler,
             final Model.SecurityValidation securityValidation,
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.security;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yupiik.fusion.persistence.api.TransactionManager;
+import io.yupiik.fusion.testing.Fusion;
+import io.yupiik.hcms.test.HCMSSupport;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+@HCMSSupport
+class TokenRevocationServiceTest {
+    @Test
+    void revokedByAnotherInstance(
+            @Fusion final TokenRevocationService revocations, @Fusion final TransactionManager tx) {
+        final var jti = UUID.randomUUID().toString();
+        final long expiresAt = System.currentTimeMillis() + 60_000;
+
+        // simulate another instance revocation not yet seen by the polling
+        tx.writeSQL(c -> {
+            try (final var stmt =
+                    c.prepareStatement("INSERT INTO HCMS_REVOKED_TOKEN (JTI, EXPIRES_AT) VALUES (?, ?)")) {
+                stmt.setString(1, jti);
+                stmt.setLong(2, expiresAt);
+                return stmt.executeUpdate();
+            }
+        });
+
+        revocations.revoke(jti, expiresAt);
+        assertTrue(revocations.isRevoked(jti));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2024 - present - Yupiik SAS - https://www.yupiik.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.yupiik.hcms.service.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+import io.yupiik.fusion.testing.Fusion;
+import io.yupiik.hcms.service.persistence.entity.User;
+import io.yupiik.hcms.service.persistence.entity.UserRoles;
+import io.yupiik.hcms.test.HCMSSupport;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@HCMSSupport
+@TestInstance(PER_CLASS)
+class UserCacheTest {
+    @Test
+    void cache(@Fusion final UserCache cache) {
+        assertNull(cache.get("cached@app.com"));
+
+        final var user = new UserRoles(
+                new User("cached", "cached@app.com", "Cached", "User", "hash", true), List.of("user:cached"));
+        cache.put("Cached@App.com", Optional.of(user));
+        assertEquals(user, cache.get("cached@app.com").orElseThrow());
+
+        cache.invalidate("CACHED@app.com");
+        assertNull(cache.get("cached@app.com"));
+
+        cache.put("missing@app.com", Optional.empty());
+        assertTrue(cache.get("missing@app.com").isEmpty());
+        cache.clear();
+        assertNull(cache.get("missing@app.com"));
+    }
+}
@@ -2,6 +2,8 @@ CREATE TABLE POST(ID VARCHAR(36) PRIMARY KEY, ICON VARCHAR(128), TITLE VARCHAR(1
 INSERT INTO POST(ID, TITLE, CONTENT) VALUES ('00001', 'First post', 'HCMS rocks.');
 
 CREATE TABLE ENTITY_REVISION(ID VARCHAR(36), NAME VARCHAR(255));
+CREATE TABLE ENTITY_VERSIONED(ID VARCHAR(36) PRIMARY KEY, NAME VARCHAR(255), REV BIGINT);
+CREATE TABLE ENTITY_OWNED(ID VARCHAR(36) PRIMARY KEY, NAME VARCHAR(255), OWNER VARCHAR(255));
 
 CREATE TABLE POST_FILTERED(ID VARCHAR(36) PRIMARY KEY, ICON VARCHAR(128), TITLE VARCHAR(128), CONTENT VARCHAR(512), AUTHOR VARCHAR(255), STATUS VARCHAR(16));
 CREATE TABLE POST_VALIDATED(ID VARCHAR(36) PRIMARY KEY, ICON VARCHAR(128), TITLE VARCHAR(128), CONTENT VARCHAR(512));